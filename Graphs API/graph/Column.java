@@ -0,0 +1,65 @@
+package graph;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** A fixed sequence of primitive items, held either in an array or in
+ *  regions of a memory-mapped file.  A mapped column lives in the
+ *  operating system's page cache rather than the Java heap, and is read
+ *  in only as it is used.  Subclasses supply the type of the items; the
+ *  mapping of files and the addressing of mapped items are here.
+ *  @author Brian Truong.
+ */
+abstract class Column {
+
+    /** Returns the number of items in me. */
+    abstract int size();
+
+    /** Writes item K to OUT, in big-endian order. */
+    abstract void put(DataOutputStream out, int k) throws IOException;
+
+    /** Writes my items to OUT in order, in big-endian order. */
+    void write(DataOutputStream out) throws IOException {
+        for (int k = 0; k < size(); k += 1) {
+            put(out, k);
+        }
+    }
+
+    /** Returns read-only regions of CHANNEL holding SIZE items of BYTES
+     *  bytes each, starting at byte POSITION, in big-endian order: the
+     *  first CHUNK items in the first region, the next CHUNK in the
+     *  second, and so on.  Item k is then at byte offset(K, BYTES) of
+     *  region chunk(K). */
+    static ByteBuffer[] map(FileChannel channel, long position, int size,
+                            int bytes) throws IOException {
+        ByteBuffer[] chunks
+            = new ByteBuffer[(int) (((long) size + CHUNK - 1) >>> SHIFT)];
+        for (int c = 0; c < chunks.length; c += 1) {
+            long first = (long) c << SHIFT;
+            long length = Math.min(CHUNK, size - first);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                    position + bytes * first,
+                                    bytes * length);
+        }
+        return chunks;
+    }
+
+    /** Returns the index of the region map places item K in. */
+    static int chunk(int k) {
+        return k >>> SHIFT;
+    }
+
+    /** Returns the byte offset of item K, of BYTES bytes, within the
+     *  region map places it in. */
+    static int offset(int k, int bytes) {
+        return (k & (CHUNK - 1)) * bytes;
+    }
+
+    /** Log base 2 of CHUNK. */
+    private static final int SHIFT = 27;
+    /** Number of items in one mapped region.  A single mapping cannot
+     *  exceed 2GB, so large columns are mapped in several. */
+    private static final int CHUNK = 1 << SHIFT;
+}
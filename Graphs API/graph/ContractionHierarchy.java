@@ -0,0 +1,602 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** A contraction hierarchy over a graph whose edge weights are given by
+ *  a Weighting, for answering many shortest-path queries against a
+ *  graph that does not change.
+ *
+ *  Construction contracts the vertices one at a time, cheapest first
+ *  (by the number of shortcut edges a contraction would add, less the
+ *  number of edges it would remove, plus the number of neighbors
+ *  already contracted).  Contracting a vertex v adds a shortcut (u, w)
+ *  for each pair of edges (u, v), (v, w) whose combined weight is not
+ *  matched by some other path from u to w.  A query then needs only a
+ *  bidirectional search that moves from each end to ever later-contracted
+ *  vertices, which settles a few hundred vertices even on large road
+ *  maps.  Shortcuts remember the two edges they replace, so the
+ *  resulting path is unpacked into edges of the original graph.
+ *
+ *  The hierarchy reflects the graph at the time it was built; its
+ *  answers are undefined once the graph is modified.  Queries may be
+ *  made from several threads at once.
+ *  @author Brian Truong.
+ */
+public class ContractionHierarchy<VLabel, ELabel> {
+
+    /** A contraction hierarchy over G, where the weight of each edge of
+     *  G is given by applying EWEIGHTER to its label.  Weights must not
+     *  be negative. */
+    public ContractionHierarchy(Graph<VLabel, ELabel> G,
+                                Weighting<? super ELabel> eweighter) {
+        _graph = G;
+        _n = G.vertexSize();
+        _out = new IntList[_n];
+        _in = new IntList[_n];
+        for (int v = 0; v < _n; v += 1) {
+            _out[v] = new IntList();
+            _in[v] = new IntList();
+        }
+        HashMap<Long, Integer> cheapest = new HashMap<Long, Integer>();
+        for (int u = 0; u < _n; u += 1) {
+            Graph<VLabel, ELabel>.Vertex ux = G.getVertex(u);
+            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(ux)) {
+                int w = e.getV(ux).getId();
+                if (w == u) {
+                    continue;
+                }
+                double weight = eweighter.weight(e.getLabel());
+                Long key = ((long) u << 32) | w;
+                Integer arc = cheapest.get(key);
+                if (arc == null) {
+                    cheapest.put(key,
+                                 addArc(u, w, weight, e, -1, -1));
+                } else if (weight < _weight[arc]) {
+                    _weight[arc] = weight;
+                    _edge.set(arc, e);
+                }
+            }
+        }
+        contract();
+        buildSearchGraphs();
+        _out = _in = null;
+        _contracted = null;
+        _deleted = _updated = null;
+        _witness = null;
+    }
+
+    /** Returns the weight of a shortest path from V0 to V1, or
+     *  Double.POSITIVE_INFINITY if V1 is unreachable from V0. */
+    public double distance(Graph<VLabel, ELabel>.Vertex V0,
+                           Graph<VLabel, ELabel>.Vertex V1) {
+        Workspace work = _workspace.get();
+        double result = work.search(id(V0), id(V1));
+        work.reset();
+        return result;
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight as a list of edges
+     *  of the graph this hierarchy was built from, or null if V1 is
+     *  unreachable from V0.  Where several edges join the same two
+     *  vertices, the path uses one of minimum weight. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1) {
+        Workspace work = _workspace.get();
+        double dist = work.search(id(V0), id(V1));
+        ArrayList<Graph<VLabel, ELabel>.Edge> result = null;
+        if (dist != Double.POSITIVE_INFINITY) {
+            IntList arcs = new IntList();
+            for (int v = work.meet; v != id(V0);
+                 v = _tail.get(work.viaF[v])) {
+                arcs.add(work.viaF[v]);
+            }
+            int forward = arcs.size();
+            for (int i = 0, j = forward - 1; i < j; i += 1, j -= 1) {
+                int tmp = arcs.get(i);
+                arcs.set(i, arcs.get(j));
+                arcs.set(j, tmp);
+            }
+            for (int v = work.meet; v != id(V1);
+                 v = _head.get(work.viaB[v])) {
+                arcs.add(work.viaB[v]);
+            }
+            result = unpack(arcs);
+        }
+        work.reset();
+        return result;
+    }
+
+    /** Returns the weights of shortest paths from each vertex in SOURCES
+     *  to each vertex in TARGETS, as a matrix whose entry [i][j] is the
+     *  distance from SOURCES.get(i) to TARGETS.get(j), or
+     *  Double.POSITIVE_INFINITY if that target is unreachable.
+     *
+     *  A complete upward search backward from each target leaves, at every
+     *  vertex it reaches, a bucket entry recording the target and its
+     *  distance.  A complete upward search forward from each source then
+     *  only needs to combine its distances with the buckets at the vertices
+     *  it reaches, so the cost grows with the number of sources plus the
+     *  number of targets rather than their product. */
+    public double[][]
+    distanceMatrix(List<Graph<VLabel, ELabel>.Vertex> sources,
+                   List<Graph<VLabel, ELabel>.Vertex> targets) {
+        double[][] result = new double[sources.size()][targets.size()];
+        Workspace work = _workspace.get();
+        IntList entryVertex = new IntList(), entryTarget = new IntList();
+        double[] entryDist = new double[16];
+        for (int j = 0; j < targets.size(); j += 1) {
+            IntList reached = work.sweep(id(targets.get(j)), false);
+            for (int k = 0; k < reached.size(); k += 1) {
+                int x = reached.get(k);
+                if (entryVertex.size() == entryDist.length) {
+                    entryDist = Arrays.copyOf(entryDist, 2 * entryDist.length);
+                }
+                entryDist[entryVertex.size()] = work.distB[x];
+                entryVertex.add(x);
+                entryTarget.add(j);
+            }
+            work.reset();
+        }
+        int[] start = new int[_n + 1];
+        for (int k = 0; k < entryVertex.size(); k += 1) {
+            start[entryVertex.get(k) + 1] += 1;
+        }
+        for (int v = 0; v < _n; v += 1) {
+            start[v + 1] += start[v];
+        }
+        int[] next = Arrays.copyOf(start, _n);
+        int[] bucketTarget = new int[entryVertex.size()];
+        double[] bucketDist = new double[entryVertex.size()];
+        for (int k = 0; k < entryVertex.size(); k += 1) {
+            int slot = next[entryVertex.get(k)];
+            next[entryVertex.get(k)] += 1;
+            bucketTarget[slot] = entryTarget.get(k);
+            bucketDist[slot] = entryDist[k];
+        }
+        for (int i = 0; i < sources.size(); i += 1) {
+            double[] row = result[i];
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+            IntList reached = work.sweep(id(sources.get(i)), true);
+            for (int k = 0; k < reached.size(); k += 1) {
+                int x = reached.get(k);
+                for (int b = start[x]; b < start[x + 1]; b += 1) {
+                    double d = work.distF[x] + bucketDist[b];
+                    if (d < row[bucketTarget[b]]) {
+                        row[bucketTarget[b]] = d;
+                    }
+                }
+            }
+            work.reset();
+        }
+        return result;
+    }
+
+    /** Returns the id of V, which must be a vertex of my graph. */
+    private int id(Graph<VLabel, ELabel>.Vertex v) {
+        if (!_graph.contains(v)) {
+            throw new IllegalArgumentException("vertex not in graph");
+        }
+        return v.getId();
+    }
+
+    /** Returns the edges of the original graph that the arcs in ARCS
+     *  stand for, in order. */
+    private ArrayList<Graph<VLabel, ELabel>.Edge> unpack(IntList arcs) {
+        ArrayList<Graph<VLabel, ELabel>.Edge> result
+            = new ArrayList<Graph<VLabel, ELabel>.Edge>();
+        IntList stack = new IntList();
+        for (int i = arcs.size() - 1; i >= 0; i -= 1) {
+            stack.add(arcs.get(i));
+        }
+        while (stack.size() > 0) {
+            int arc = stack.pop();
+            if (_first.get(arc) < 0) {
+                result.add(_edge.get(arc));
+            } else {
+                stack.add(_second.get(arc));
+                stack.add(_first.get(arc));
+            }
+        }
+        return result;
+    }
+
+    /** Adds an arc from vertex id TAIL to vertex id HEAD of weight WEIGHT
+     *  and returns its id.  The arc stands for the edge EDGE of the graph,
+     *  or, if EDGE is null, for arc FIRST followed by arc SECOND. */
+    private int addArc(int tail, int head, double weight,
+                       Graph<VLabel, ELabel>.Edge edge, int first,
+                       int second) {
+        int arc = _tail.size();
+        _tail.add(tail);
+        _head.add(head);
+        _first.add(first);
+        _second.add(second);
+        _edge.add(edge);
+        if (arc == _weight.length) {
+            _weight = Arrays.copyOf(_weight, 2 * arc + 16);
+        }
+        _weight[arc] = weight;
+        _out[tail].add(arc);
+        _in[head].add(arc);
+        return arc;
+    }
+
+    /** Contracts every vertex, recording the order in _RANK. */
+    private void contract() {
+        _contracted = new boolean[_n];
+        _deleted = new int[_n];
+        _rank = new int[_n];
+        _updated = new int[_n];
+        _witness = new Witness();
+        IndexedHeap queue = new IndexedHeap(_n);
+        for (int v = 0; v < _n; v += 1) {
+            queue.put(v, priority(v));
+        }
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            double p = priority(v);
+            if (!queue.isEmpty() && p > queue.peekKey()) {
+                queue.put(v, p);
+                continue;
+            }
+            shortcut(v, true);
+            _contracted[v] = true;
+            _rank[v] = order;
+            order += 1;
+            for (IntList arcs : new IntList[] { _out[v], _in[v] }) {
+                for (int i = 0; i < arcs.size(); i += 1) {
+                    int arc = arcs.get(i);
+                    int x = _tail.get(arc) == v ? _head.get(arc)
+                        : _tail.get(arc);
+                    if (!_contracted[x] && _updated[x] != order) {
+                        _updated[x] = order;
+                        _deleted[x] += 1;
+                        queue.put(x, priority(x));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the contraction priority of vertex id V: smaller values
+     *  are contracted first. */
+    private double priority(int v) {
+        prune(_out[v]);
+        prune(_in[v]);
+        int degree = _out[v].size() + _in[v].size();
+        return shortcut(v, false) - degree + 2 * _deleted[v];
+    }
+
+    /** Removes the arcs incident on contracted vertices from ARCS. */
+    private void prune(IntList arcs) {
+        int i = 0;
+        while (i < arcs.size()) {
+            int arc = arcs.get(i);
+            if (_contracted[_tail.get(arc)] || _contracted[_head.get(arc)]) {
+                arcs.set(i, arcs.get(arcs.size() - 1));
+                arcs.pop();
+            } else {
+                i += 1;
+            }
+        }
+    }
+
+    /** Returns the number of shortcuts needed to contract vertex id V,
+     *  adding them iff APPLY. */
+    private int shortcut(int v, boolean apply) {
+        int count = 0;
+        for (int i = 0; i < _in[v].size(); i += 1) {
+            int a = _in[v].get(i);
+            int u = _tail.get(a);
+            if (_contracted[u]) {
+                continue;
+            }
+            double limit = 0.0;
+            for (int j = 0; j < _out[v].size(); j += 1) {
+                int b = _out[v].get(j);
+                int w = _head.get(b);
+                if (!_contracted[w] && w != u) {
+                    limit = Math.max(limit, _weight[a] + _weight[b]);
+                }
+            }
+            _witness.search(u, v, limit,
+                            apply ? WITNESS_SETTLED : SIMULATE_SETTLED);
+            for (int j = 0; j < _out[v].size(); j += 1) {
+                int b = _out[v].get(j);
+                int w = _head.get(b);
+                double via = _weight[a] + _weight[b];
+                if (_contracted[w] || w == u
+                    || _witness.dist[w] <= via) {
+                    continue;
+                }
+                count += 1;
+                if (apply) {
+                    addShortcut(u, w, via, a, b);
+                }
+            }
+            _witness.reset();
+        }
+        return count;
+    }
+
+    /** Adds or improves the arc from vertex id U to vertex id W so that it
+     *  has weight WEIGHT and stands for arc FIRST followed by arc
+     *  SECOND. */
+    private void addShortcut(int u, int w, double weight,
+                             int first, int second) {
+        for (int i = 0; i < _out[u].size(); i += 1) {
+            int arc = _out[u].get(i);
+            if (_head.get(arc) == w) {
+                if (weight < _weight[arc]) {
+                    _weight[arc] = weight;
+                    _first.set(arc, first);
+                    _second.set(arc, second);
+                    _edge.set(arc, null);
+                }
+                return;
+            }
+        }
+        addArc(u, w, weight, null, first, second);
+    }
+
+    /** Fills in the upward search graphs from the arcs and _RANK. */
+    private void buildSearchGraphs() {
+        int m = _tail.size();
+        _upStart = new int[_n + 1];
+        _downStart = new int[_n + 1];
+        for (int arc = 0; arc < m; arc += 1) {
+            int t = _tail.get(arc), h = _head.get(arc);
+            if (_rank[h] > _rank[t]) {
+                _upStart[t + 1] += 1;
+            } else {
+                _downStart[h + 1] += 1;
+            }
+        }
+        for (int v = 0; v < _n; v += 1) {
+            _upStart[v + 1] += _upStart[v];
+            _downStart[v + 1] += _downStart[v];
+        }
+        _up = new int[_upStart[_n]];
+        _down = new int[_downStart[_n]];
+        int[] upNext = Arrays.copyOf(_upStart, _n);
+        int[] downNext = Arrays.copyOf(_downStart, _n);
+        for (int arc = 0; arc < m; arc += 1) {
+            int t = _tail.get(arc), h = _head.get(arc);
+            if (_rank[h] > _rank[t]) {
+                _up[upNext[t]] = arc;
+                upNext[t] += 1;
+            } else {
+                _down[downNext[h]] = arc;
+                downNext[h] += 1;
+            }
+        }
+    }
+
+    /** A bounded Dijkstra search used during contraction to find paths
+     *  that make a shortcut unnecessary. */
+    private class Witness {
+        /** Search state for my hierarchy's vertices. */
+        Witness() {
+            dist = new double[_n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            _open = new IndexedHeap(_n);
+            _touched = new IntList();
+        }
+
+        /** Computes distances from vertex id START to uncontracted vertices
+         *  other than AVOID, stopping at distance LIMIT or after settling
+         *  MAXSETTLED vertices. */
+        void search(int start, int avoid, double limit, int maxSettled) {
+            dist[start] = 0.0;
+            _touched.add(start);
+            _open.put(start, 0.0);
+            int settled = 0;
+            while (!_open.isEmpty() && _open.peekKey() <= limit
+                   && settled < maxSettled) {
+                int x = _open.poll();
+                settled += 1;
+                for (int i = 0; i < _out[x].size(); i += 1) {
+                    int arc = _out[x].get(i);
+                    int y = _head.get(arc);
+                    if (y == avoid || _contracted[y]) {
+                        continue;
+                    }
+                    double d = dist[x] + _weight[arc];
+                    if (d < dist[y]) {
+                        if (dist[y] == Double.POSITIVE_INFINITY) {
+                            _touched.add(y);
+                        }
+                        dist[y] = d;
+                        _open.put(y, d);
+                    }
+                }
+            }
+        }
+
+        /** Restore all distances to infinity. */
+        void reset() {
+            for (int i = 0; i < _touched.size(); i += 1) {
+                dist[_touched.get(i)] = Double.POSITIVE_INFINITY;
+            }
+            _touched.clear();
+            _open.clear();
+        }
+
+        /** Best distance found to each vertex id. */
+        final double[] dist;
+        /** Vertices on the fringe. */
+        private final IndexedHeap _open;
+        /** Vertex ids whose distances are not infinite. */
+        private final IntList _touched;
+    }
+
+    /** The state of one query, kept between queries so that each query
+     *  costs time proportional to the vertices it touches. */
+    private class Workspace {
+        /** Query state for my hierarchy's vertices. */
+        Workspace() {
+            distF = new double[_n];
+            distB = new double[_n];
+            Arrays.fill(distF, Double.POSITIVE_INFINITY);
+            Arrays.fill(distB, Double.POSITIVE_INFINITY);
+            viaF = new int[_n];
+            viaB = new int[_n];
+            _openF = new IndexedHeap(_n);
+            _openB = new IndexedHeap(_n);
+            _touched = new IntList();
+        }
+
+        /** Searches upward from vertex ids S and T, and returns the
+         *  distance from S to T, setting MEET to the vertex where the
+         *  shortest path peaks. */
+        double search(int s, int t) {
+            double best = Double.POSITIVE_INFINITY;
+            meet = -1;
+            distF[s] = 0.0;
+            distB[t] = 0.0;
+            _touched.add(s);
+            _touched.add(t);
+            _openF.put(s, 0.0);
+            _openB.put(t, 0.0);
+            while (Math.min(_openF.peekKey(), _openB.peekKey()) < best) {
+                boolean forward = _openF.peekKey() <= _openB.peekKey();
+                IndexedHeap open = forward ? _openF : _openB;
+                double[] dist = forward ? distF : distB;
+                int[] via = forward ? viaF : viaB;
+                int x = open.poll();
+                if (distF[x] + distB[x] < best) {
+                    best = distF[x] + distB[x];
+                    meet = x;
+                }
+                int[] arcs = forward ? _up : _down;
+                int end = forward ? _upStart[x + 1] : _downStart[x + 1];
+                for (int i = forward ? _upStart[x] : _downStart[x];
+                     i < end; i += 1) {
+                    int arc = arcs[i];
+                    int y = forward ? _head.get(arc) : _tail.get(arc);
+                    double d = dist[x] + _weight[arc];
+                    if (d < dist[y]) {
+                        if (distF[y] == Double.POSITIVE_INFINITY
+                            && distB[y] == Double.POSITIVE_INFINITY) {
+                            _touched.add(y);
+                        }
+                        dist[y] = d;
+                        via[y] = arc;
+                        open.put(y, d);
+                    }
+                }
+            }
+            return best;
+        }
+
+        /** Searches upward from vertex id S along arcs leading to (if
+         *  FORWARD) or from later-contracted vertices until the fringe is
+         *  empty, and returns the ids of the vertices reached.  Their
+         *  distances are then in DISTF (if FORWARD) or DISTB.  The
+         *  returned list is valid until the next reset. */
+        IntList sweep(int s, boolean forward) {
+            IndexedHeap open = forward ? _openF : _openB;
+            double[] dist = forward ? distF : distB;
+            int[] arcs = forward ? _up : _down;
+            int[] start = forward ? _upStart : _downStart;
+            dist[s] = 0.0;
+            _touched.add(s);
+            open.put(s, 0.0);
+            while (!open.isEmpty()) {
+                int x = open.poll();
+                for (int i = start[x]; i < start[x + 1]; i += 1) {
+                    int arc = arcs[i];
+                    int y = forward ? _head.get(arc) : _tail.get(arc);
+                    double d = dist[x] + _weight[arc];
+                    if (d < dist[y]) {
+                        if (dist[y] == Double.POSITIVE_INFINITY) {
+                            _touched.add(y);
+                        }
+                        dist[y] = d;
+                        open.put(y, d);
+                    }
+                }
+            }
+            return _touched;
+        }
+
+        /** Restore the state for the next query. */
+        void reset() {
+            for (int i = 0; i < _touched.size(); i += 1) {
+                distF[_touched.get(i)] = Double.POSITIVE_INFINITY;
+                distB[_touched.get(i)] = Double.POSITIVE_INFINITY;
+            }
+            _touched.clear();
+            _openF.clear();
+            _openB.clear();
+        }
+
+        /** Distances from the source and to the target, by vertex id. */
+        final double[] distF, distB;
+        /** Last arc on the best known path from the source to, and first
+         *  arc on the best known path to the target from, each vertex. */
+        final int[] viaF, viaB;
+        /** Vertex id at which the last search's paths met. */
+        int meet;
+        /** Fringes of the forward and backward searches. */
+        private final IndexedHeap _openF, _openB;
+        /** Vertex ids whose distances are not infinite. */
+        private final IntList _touched;
+    }
+
+    /** Maximum number of vertices settled by one witness search. */
+    private static final int WITNESS_SETTLED = 500;
+    /** Maximum number of vertices settled by one witness search when
+     *  only estimating the number of shortcuts a contraction needs. */
+    private static final int SIMULATE_SETTLED = 20;
+
+    /** The graph I was built from. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** Number of vertices. */
+    private final int _n;
+
+    /** Tail and head vertex ids of each arc. */
+    private final IntList _tail = new IntList(), _head = new IntList();
+    /** For shortcut arcs, the two arcs they stand for; -1 otherwise. */
+    private final IntList _first = new IntList(), _second = new IntList();
+    /** Weight of each arc. */
+    private double[] _weight = new double[16];
+    /** For original arcs, the graph edge they stand for; null otherwise. */
+    private final ArrayList<Graph<VLabel, ELabel>.Edge> _edge
+        = new ArrayList<Graph<VLabel, ELabel>.Edge>();
+
+    /** Arcs leaving and entering each vertex id, during construction. */
+    private IntList[] _out, _in;
+    /** Vertex ids already contracted, during construction. */
+    private boolean[] _contracted;
+    /** Number of contracted neighbors of each vertex id, during
+     *  construction. */
+    private int[] _deleted;
+    /** For each vertex id, the number of contractions made when its
+     *  priority was last updated, during construction. */
+    private int[] _updated;
+    /** Witness search state, during construction. */
+    private Witness _witness;
+
+    /** Position of each vertex id in the contraction order. */
+    private int[] _rank;
+    /** Arcs leading to later-contracted vertices, grouped by tail: those
+     *  of vertex id v are _UP[_UPSTART[v] .. _UPSTART[v+1]-1]. */
+    private int[] _upStart, _up;
+    /** Arcs leading from later-contracted vertices, grouped by head. */
+    private int[] _downStart, _down;
+
+    /** Query state for each thread. */
+    private final ThreadLocal<Workspace> _workspace
+        = new ThreadLocal<Workspace>() {
+                @Override
+                protected Workspace initialValue() {
+                    return new Workspace();
+                }
+            };
+}
@@ -0,0 +1,97 @@
+package graph;
+
+import java.util.Arrays;
+
+/** Typed attributes of the edges of a graph, held in parallel arrays
+ *  indexed by edge number: a double weight, a byte direction, and an int
+ *  name (typically an index into a table of interned names).  A graph
+ *  whose edge labels are these numbers can be searched with weighter(),
+ *  which reads the weight column directly rather than looking weights
+ *  up by label.
+ *  @author Brian Truong.
+ */
+public final class EdgeColumns {
+
+    /** An empty set of columns. */
+    public EdgeColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /** An empty set of columns with room for CAPACITY edges before they
+     *  must grow. */
+    public EdgeColumns(int capacity) {
+        capacity = Math.max(1, capacity);
+        _weights = new double[capacity];
+        _directions = new byte[capacity];
+        _names = new int[capacity];
+    }
+
+    /** Adds an edge with weight WEIGHT, direction DIRECTION, and name
+     *  NAME, and returns its number, which is the previous size(). */
+    public int add(double weight, byte direction, int name) {
+        if (_size == _weights.length) {
+            int capacity = 2 * _size;
+            _weights = Arrays.copyOf(_weights, capacity);
+            _directions = Arrays.copyOf(_directions, capacity);
+            _names = Arrays.copyOf(_names, capacity);
+        }
+        _weights[_size] = weight;
+        _directions[_size] = direction;
+        _names[_size] = name;
+        _size += 1;
+        return _size - 1;
+    }
+
+    /** Returns the number of edges I describe. */
+    public int size() {
+        return _size;
+    }
+
+    /** Returns the weight of edge E.  Assumes 0 <= E < size(). */
+    public double weight(int e) {
+        return _weights[e];
+    }
+
+    /** Sets the weight of edge E to WEIGHT.  Assumes 0 <= E < size(). */
+    public void setWeight(int e, double weight) {
+        _weights[e] = weight;
+    }
+
+    /** Returns the direction of edge E.  Assumes 0 <= E < size(). */
+    public byte direction(int e) {
+        return _directions[e];
+    }
+
+    /** Returns the name of edge E.  Assumes 0 <= E < size(). */
+    public int name(int e) {
+        return _names[e];
+    }
+
+    /** Returns a Weighter whose weight for edge number E is weight(E),
+     *  and which sets it with setWeight. */
+    public Weighter<Integer> weighter() {
+        return new Weighter<Integer>() {
+            @Override
+            public double weight(Integer e) {
+                return _weights[e];
+            }
+
+            @Override
+            public void setWeight(Integer e, double v) {
+                _weights[e] = v;
+            }
+        };
+    }
+
+    /** Number of edges for which room is first made. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of edges I describe. */
+    private int _size;
+    /** The weight of each edge. */
+    private double[] _weights;
+    /** The direction of each edge. */
+    private byte[] _directions;
+    /** The name of each edge. */
+    private int[] _names;
+}
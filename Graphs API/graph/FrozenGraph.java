@@ -0,0 +1,332 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/** An immutable snapshot of a graph, as returned by Graph.freeze, with
+ *  its vertices possibly renumbered.  Edges are numbered in the order in
+ *  which the outgoing lists of the original graph, taken in order of new
+ *  vertex id, first deliver them, and each vertex's outgoing edges
+ *  occupy a consecutive range of positions, for which we record the
+ *  vertex at the far end and, in an undirected graph, where an edge
+ *  appears under both its ends, the edge number.  (In a directed graph,
+ *  positions are edge numbers.)  Incoming adjacency lists edge numbers
+ *  grouped the same way by vertex; in an undirected graph it is outgoing
+ *  adjacency.
+ *  @author Brian Truong.
+ */
+class FrozenGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** A snapshot of G in which G.getVertex(v) becomes vertex IDS[v], or
+     *  keeps its id if IDS is null.  IDS must be a permutation of
+     *  0 .. G.vertexSize()-1. */
+    FrozenGraph(Graph<VLabel, ELabel> G, int[] ids) {
+        _directed = G.isDirected();
+        int n = G.vertexSize();
+        if (ids == null) {
+            ids = new int[n];
+            for (int v = 0; v < n; v += 1) {
+                ids[v] = v;
+            }
+        } else if (ids.length != n) {
+            throw new IllegalArgumentException("not a renumbering");
+        }
+        int[] old = VertexOrder.inverse(ids);
+        _vertexTable = new ArrayList<Vertex>(n);
+        for (int v = 0; v < n; v += 1) {
+            _vertexTable.add(new Vertex(G.getVertex(old[v]).getLabel(), v));
+        }
+        IdentityHashMap<Graph<VLabel, ELabel>.Edge, Integer> arcOf
+            = new IdentityHashMap<Graph<VLabel, ELabel>.Edge, Integer>();
+        _outStart = new int[n + 1];
+        IntList heads = new IntList(), numbers = new IntList();
+        _edgeTable = new ArrayList<Edge>();
+        for (int v = 0; v < n; v += 1) {
+            Graph<VLabel, ELabel>.Vertex vx = G.getVertex(old[v]);
+            for (int k = 0; k < G.outDegree(vx); k += 1) {
+                Graph<VLabel, ELabel>.Edge e = G.outEdge(vx, k);
+                Integer number = arcOf.get(e);
+                if (number == null) {
+                    number = _edgeTable.size();
+                    arcOf.put(e, number);
+                    _edgeTable.add(new Edge(
+                        _vertexTable.get(ids[e.getV0().getId()]),
+                        _vertexTable.get(ids[e.getV1().getId()]),
+                        e.getLabel()));
+                }
+                heads.add(ids[e.getV(vx).getId()]);
+                numbers.add(number);
+            }
+            _outStart[v + 1] = heads.size();
+        }
+        _outHeads = heads.toArray();
+        if (_directed) {
+            _outEdges = null;
+            _inStart = new int[n + 1];
+            _inArcs = new int[_edgeTable.size()];
+            _inTails = new int[_edgeTable.size()];
+            int i = 0;
+            for (int v = 0; v < n; v += 1) {
+                for (Graph<VLabel, ELabel>.Edge e
+                         : G.inEdges(G.getVertex(old[v]))) {
+                    _inArcs[i] = arcOf.get(e);
+                    _inTails[i] = ids[e.getV0().getId()];
+                    i += 1;
+                }
+                _inStart[v + 1] = i;
+            }
+        } else {
+            _outEdges = numbers.toArray();
+            _inStart = _outStart;
+            _inArcs = _outEdges;
+            _inTails = _outHeads;
+        }
+        _edgeList = new ArrayList<Edge>();
+        for (Graph<VLabel, ELabel>.Edge e : G.edges()) {
+            _edgeList.add(_edgeTable.get(arcOf.get(e)));
+        }
+        _sortedHeads = _outHeads.clone();
+        for (int v = 0; v < n; v += 1) {
+            Arrays.sort(_sortedHeads, _outStart[v], _outStart[v + 1]);
+        }
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexTable.size();
+    }
+
+    @Override
+    boolean contains(Vertex v) {
+        if (v == null) {
+            return false;
+        }
+        int id = v.getId();
+        return id >= 0 && id < _vertexTable.size()
+            && _vertexTable.get(id) == v;
+    }
+
+    @Override
+    public Vertex getVertex(int id) {
+        return _vertexTable.get(id);
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeList.size();
+    }
+
+    @Override
+    Edge outEdge(Vertex v, int k) {
+        int i = _outStart[v.getId()] + k;
+        return _edgeTable.get(_outEdges == null ? i : _outEdges[i]);
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        return _outStart[v.getId() + 1] - _outStart[v.getId()];
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        return _inStart[v.getId() + 1] - _inStart[v.getId()];
+    }
+
+    /** Returns true iff there is an edge (U, V) in me with any label.
+     *  Takes time proportional to the logarithm of outDegree(U). */
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        if (!contains(u) || !contains(v)) {
+            return false;
+        }
+        int id = u.getId();
+        return Arrays.binarySearch(_sortedHeads, _outStart[id],
+                                   _outStart[id + 1], v.getId()) >= 0;
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        if (!contains(u) || !contains(v)) {
+            return false;
+        }
+        for (Edge e : outDegree(u) <= inDegree(v) ? outEdges(u) : inEdges(v)) {
+            if (joins(e, u, v)
+                && (label == null ? e.getLabel() == null
+                    : label.equals(e.getLabel()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        throw frozen();
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        throw frozen();
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        throw frozen();
+    }
+
+    @Override
+    public void remove(Edge e) {
+        throw frozen();
+    }
+
+    @Override
+    public void remove(Vertex v1, Vertex v2) {
+        throw frozen();
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        return Iteration.iteration(_vertexTable);
+    }
+
+    @Override
+    public Iteration<Vertex> successors(Vertex v) {
+        int id = v.getId();
+        return new Range<Vertex>(_vertexTable, _outHeads,
+                                 _outStart[id], _outStart[id + 1]);
+    }
+
+    @Override
+    public Iteration<Vertex> predecessors(Vertex v) {
+        int id = v.getId();
+        return new Range<Vertex>(_vertexTable, _inTails,
+                                 _inStart[id], _inStart[id + 1]);
+    }
+
+    @Override
+    public void forEachSuccessor(Vertex v, IntConsumer action) {
+        int id = v.getId();
+        for (int i = _outStart[id]; i < _outStart[id + 1]; i += 1) {
+            action.accept(_outHeads[i]);
+        }
+    }
+
+    @Override
+    public void forEachPredecessor(Vertex v, IntConsumer action) {
+        int id = v.getId();
+        for (int i = _inStart[id]; i < _inStart[id + 1]; i += 1) {
+            action.accept(_inTails[i]);
+        }
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        return Iteration.iteration(_edgeList);
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        int id = v.getId();
+        return new Range<Edge>(_edgeTable, _outEdges,
+                               _outStart[id], _outStart[id + 1]);
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        int id = v.getId();
+        return new Range<Edge>(_edgeTable, _inArcs,
+                               _inStart[id], _inStart[id + 1]);
+    }
+
+    @Override
+    public void orderEdges(final Comparator<ELabel> comparator) {
+        Collections.sort(_edgeList, new Comparator<Edge>() {
+                @Override
+                public int compare(Edge e1, Edge e2) {
+                    return comparator.compare(e1.getLabel(), e2.getLabel());
+                }
+            });
+    }
+
+    @Override
+    public Graph<VLabel, ELabel> freeze() {
+        return this;
+    }
+
+    /** Returns the exception thrown by attempts to change me. */
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("graph is frozen");
+    }
+
+    /** An iteration over the items of a table whose indices occupy a
+     *  range of positions in an array. */
+    private static class Range<Type> extends Iteration<Type> {
+
+        /** Iterates over TABLE.get(INDICES[k]) for LO <= k < HI, or over
+         *  TABLE.get(k) if INDICES is null. */
+        Range(List<Type> table, int[] indices, int lo, int hi) {
+            _table = table;
+            _indices = indices;
+            _next = lo;
+            _hi = hi;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < _hi;
+        }
+
+        @Override
+        public Type next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int k = _indices == null ? _next : _indices[_next];
+            _next += 1;
+            return _table.get(k);
+        }
+
+        /** The items I deliver some of. */
+        private final List<Type> _table;
+        /** Indices into _TABLE, or null if positions are indices. */
+        private final int[] _indices;
+        /** The next position, and the end of my range. */
+        private int _next, _hi;
+    }
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** My vertices, indexed by id. */
+    private final ArrayList<Vertex> _vertexTable;
+    /** My edges, indexed by edge number. */
+    private final ArrayList<Edge> _edgeTable;
+    /** My edges, in the order edges() delivers them. */
+    private final ArrayList<Edge> _edgeList;
+    /** The edges leaving vertex v occupy positions _OUTSTART[v] ..
+     *  _OUTSTART[v+1]-1. */
+    private final int[] _outStart;
+    /** The id of the vertex at the far end of the edge at each position. */
+    private final int[] _outHeads;
+    /** The number of the edge at each position, or null if positions are
+     *  edge numbers. */
+    private final int[] _outEdges;
+    /** _OUTHEADS, with the range for each vertex sorted. */
+    private final int[] _sortedHeads;
+    /** The edges entering vertex v are numbered _INARCS[_INSTART[v] ..
+     *  _INSTART[v+1]-1]. */
+    private final int[] _inStart, _inArcs;
+    /** The id of the vertex at the far end of each edge in _INARCS, by
+     *  position. */
+    private final int[] _inTails;
+}
@@ -0,0 +1,75 @@
+package graph;
+
+import java.util.ArrayList;
+
+/** Collects the vertices and edges of a graph and then builds it in one
+ *  step.  Vertices are denoted by the numbers addVertex returns, which
+ *  become their ids in the graph built, and edges are recorded in arrays
+ *  until build time.  Building then counts the degree of every vertex,
+ *  allocates each adjacency list once at its final size, and fills the
+ *  lists in a single pass, without the membership checks and list
+ *  growth of successive calls to add.  The graph built is the same as
+ *  one made by adding the same vertices and edges in the same order.
+ *  @author Brian Truong.
+ */
+public final class GraphBuilder<VLabel, ELabel> {
+
+    /** An empty builder. */
+    public GraphBuilder() {
+    }
+
+    /** Records a vertex labeled LABEL and returns its number, which is
+     *  the previous vertexSize(). */
+    public int addVertex(VLabel label) {
+        _vertexLabels.add(label);
+        return _vertexLabels.size() - 1;
+    }
+
+    /** Records an edge from vertex FROM to vertex TO labeled LABEL.
+     *  Throws IllegalArgumentException if either is not the number of a
+     *  recorded vertex. */
+    public void addEdge(int from, int to, ELabel label) {
+        if (from < 0 || from >= _vertexLabels.size()
+            || to < 0 || to >= _vertexLabels.size()) {
+            throw new IllegalArgumentException("no such vertex");
+        }
+        _tails.add(from);
+        _heads.add(to);
+        _edgeLabels.add(label);
+    }
+
+    /** Returns the number of vertices recorded. */
+    public int vertexSize() {
+        return _vertexLabels.size();
+    }
+
+    /** Returns the number of edges recorded. */
+    public int edgeSize() {
+        return _edgeLabels.size();
+    }
+
+    /** Returns a new directed graph with my vertices and edges. */
+    public DirectedGraph<VLabel, ELabel> buildDirected() {
+        DirectedGraph<VLabel, ELabel> result
+            = new DirectedGraph<VLabel, ELabel>();
+        result.load(_vertexLabels, _tails.toArray(), _heads.toArray(),
+                    _edgeLabels);
+        return result;
+    }
+
+    /** Returns a new undirected graph with my vertices and edges. */
+    public UndirectedGraph<VLabel, ELabel> buildUndirected() {
+        UndirectedGraph<VLabel, ELabel> result
+            = new UndirectedGraph<VLabel, ELabel>();
+        result.load(_vertexLabels, _tails.toArray(), _heads.toArray(),
+                    _edgeLabels);
+        return result;
+    }
+
+    /** The label of each vertex, by number. */
+    private final ArrayList<VLabel> _vertexLabels = new ArrayList<VLabel>();
+    /** The numbers of the vertices each edge leaves and enters. */
+    private final IntList _tails = new IntList(), _heads = new IntList();
+    /** The label of each edge. */
+    private final ArrayList<ELabel> _edgeLabels = new ArrayList<ELabel>();
+}
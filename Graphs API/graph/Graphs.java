@@ -1,10 +1,11 @@
 package graph;
 
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.HashMap;
-import java.util.Comparator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 
 /** Assorted graph algorithms.
  *  @author Brian Truong.
@@ -35,49 +36,47 @@ public final class Graphs {
         Graph<VLabel, ELabel>.Vertex V1, Distancer<? super VLabel> h,
         Weighter<? super VLabel> vweighter,
         Weighting<? super ELabel> eweighter) {
-        Comparator<Graph<VLabel, ELabel>.Vertex> vcomparator
-            = pathComparator1(vweighter);
-        PriorityQueue<Graph<VLabel, ELabel>.Vertex> open
-            = new PriorityQueue<Graph<VLabel, ELabel>.Vertex>(G.vertexSize(),
-                vcomparator);
-        HashMap<Graph<VLabel, ELabel>.Vertex, Graph<VLabel, ELabel>.Vertex>
-            camefrom = new HashMap<Graph<VLabel, ELabel>.Vertex,
-            Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> closed
-            = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        HashMap<Graph<VLabel, ELabel>.Vertex, Double> gscore
-            = new HashMap<Graph<VLabel, ELabel>.Vertex, Double>();
-        vweighter.setWeight(V0.getLabel(), 0.0 + h.dist(V0.getLabel(),
-                V1.getLabel()));
-        gscore.put(V0, 0.0);
-        open.add(V0);
-        while (open.size() != 0) {
-            Graph<VLabel, ELabel>.Vertex curr = open.poll();
-            if (curr.equals(V1)) {
-                return finishPath(G.reconstructPath(camefrom, V1), eweighter);
+        int n = G.vertexSize();
+        IndexedHeap open = new IndexedHeap(n);
+        BitSet closed = new BitSet(n);
+        double[] gscore = new double[n];
+        double[] fscore = new double[n];
+        ArrayList<Graph<VLabel, ELabel>.Edge> via
+            = new ArrayList<Graph<VLabel, ELabel>.Edge>(
+                Collections.<Graph<VLabel, ELabel>.Edge>nCopies(n, null));
+        int start = V0.getId();
+        fscore[start] = 0.0 + h.dist(V0.getLabel(), V1.getLabel());
+        vweighter.setWeight(V0.getLabel(), fscore[start]);
+        open.put(start, fscore[start]);
+        while (!open.isEmpty()) {
+            int c = open.poll();
+            Graph<VLabel, ELabel>.Vertex curr = G.getVertex(c);
+            if (curr == V1) {
+                ArrayList<Graph<VLabel, ELabel>.Edge> path
+                    = new ArrayList<Graph<VLabel, ELabel>.Edge>();
+                tracePath(V1, V0, via, path);
+                Collections.reverse(path);
+                return path;
             }
-            closed.add(curr);
-            for (Iteration<Graph<VLabel, ELabel>.Edge> iter
-                    = G.outEdges(curr); iter.hasNext();) {
-                Graph<VLabel, ELabel>.Edge etmp = iter.next();
+            closed.set(c);
+            for (Graph<VLabel, ELabel>.Edge etmp : G.outEdges(curr)) {
                 Graph<VLabel, ELabel>.Vertex vtmp = etmp.getV(curr);
-                double g =  gscore.get(curr)
-                                + eweighter.weight(etmp.getLabel());
+                int w = vtmp.getId();
+                double g = gscore[c] + eweighter.weight(etmp.getLabel());
                 double f = g + h.dist(vtmp.getLabel(), V1.getLabel());
-                if (closed.contains(vtmp)) {
-                    if (f >= vweighter.weight(vtmp.getLabel())) {
+                if (closed.get(w)) {
+                    if (f >= fscore[w]) {
                         continue;
                     }
+                    closed.clear(w);
+                } else if (open.contains(w) && f >= fscore[w]) {
+                    continue;
                 }
-                if (!open.contains(vtmp)
-                        || f < vweighter.weight(vtmp.getLabel())) {
-                    camefrom.put(vtmp, curr);
-                    gscore.put(vtmp, g);
-                    vweighter.setWeight(vtmp.getLabel(), f);
-                    if (!open.contains(vtmp)) {
-                        open.add(vtmp);
-                    }
-                }
+                via.set(w, etmp);
+                gscore[w] = g;
+                fscore[w] = f;
+                vweighter.setWeight(vtmp.getLabel(), f);
+                open.put(w, f);
             }
         }
         return null;
@@ -108,131 +107,309 @@ public final class Graphs {
     List<Graph<VLabel, ELabel>.Edge>
     shortestPath(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex V0,
         Graph<VLabel, ELabel>.Vertex V1, Distancer<? super VLabel> h) {
-        Comparator<Graph<VLabel, ELabel>.Vertex> vcom = pathComparator2();
-        PriorityQueue<Graph<VLabel, ELabel>.Vertex> open
-            = new PriorityQueue<Graph<VLabel, ELabel>.Vertex>(G.vertexSize(),
-                vcom);
-        HashMap<Graph<VLabel, ELabel>.Vertex, Graph<VLabel, ELabel>.Vertex>
-            camefrom = new HashMap<Graph<VLabel, ELabel>.Vertex,
-            Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> closed
-            = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        HashMap<Graph<VLabel, ELabel>.Vertex, Double> gscore
-            = new HashMap<Graph<VLabel, ELabel>.Vertex, Double>();
-        (V0.getLabel()).setWeight(0.0 + h.dist(V0.getLabel(), V1.getLabel()));
-        gscore.put(V0, 0.0);
-        open.add(V0);
-        while (open.size() != 0) {
-            Graph<VLabel, ELabel>.Vertex curr = open.poll();
-            if (curr.equals(V1)) {
-                return finishPath(G.reconstructPath(camefrom, V1));
+        return shortestPath(G, V0, V1, h, LABEL_WEIGHTER, LABEL_WEIGHTING);
+    }
+
+    /** Returns a path from V0 to V1 in G of minimum weight, according
+     *  to the edge weighter EWEIGHTER, or null if V1 is unreachable from
+     *  V0.  This has the same requirements on H as shortestPath, but
+     *  searches forward from V0 along outgoing edges and backward from V1
+     *  along incoming edges at the same time, stopping once the two
+     *  searches can no longer improve the best path where they meet.  On
+     *  point-to-point queries between distant vertices this typically
+     *  settles far fewer vertices than shortestPath.
+     *
+     *  Both searches use the potential (H.dist(v, V1) - H.dist(V0, v)) / 2
+     *  for each vertex v, which is consistent in both directions whenever H
+     *  satisfies property (b) of shortestPath.  As a side effect, uses
+     *  VWEIGHTER to set the weight of each vertex on the returned path to
+     *  the weight of the path from V0 to it.  VLABEL and ELABEL are the
+     *  types of vertex and edge labels. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(Graph<VLabel, ELabel> G,
+        Graph<VLabel, ELabel>.Vertex V0, Graph<VLabel, ELabel>.Vertex V1,
+        Distancer<? super VLabel> h, Weighter<? super VLabel> vweighter,
+        Weighting<? super ELabel> eweighter) {
+        int n = G.vertexSize();
+        ArrayList<Graph<VLabel, ELabel>.Edge> path
+            = new ArrayList<Graph<VLabel, ELabel>.Edge>();
+        if (V0 == V1) {
+            vweighter.setWeight(V0.getLabel(), 0.0);
+            return path;
+        }
+        Potential<VLabel, ELabel> pot
+            = new Potential<VLabel, ELabel>(n, V0, V1, h);
+        Search<VLabel, ELabel> fwd = new Search<VLabel, ELabel>(n, true);
+        Search<VLabel, ELabel> bwd = new Search<VLabel, ELabel>(n, false);
+        fwd.start(V0.getId(), pot.forward(V0));
+        bwd.start(V1.getId(), -pot.forward(V1));
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (!fwd.open.isEmpty() && !bwd.open.isEmpty()
+               && fwd.open.peekKey() + bwd.open.peekKey() < best) {
+            Search<VLabel, ELabel> self, other;
+            if (fwd.open.size() <= bwd.open.size()) {
+                self = fwd;
+                other = bwd;
+            } else {
+                self = bwd;
+                other = fwd;
             }
-            closed.add(curr);
-            for (Iteration<Graph<VLabel, ELabel>.Edge> iter
-                    = G.outEdges(V0); iter.hasNext();) {
-                Graph<VLabel, ELabel>.Edge etmp = iter.next();
+            int c = self.open.poll();
+            Graph<VLabel, ELabel>.Vertex curr = G.getVertex(c);
+            self.closed.set(c);
+            for (Graph<VLabel, ELabel>.Edge etmp
+                     : self.forward ? G.outEdges(curr) : G.inEdges(curr)) {
                 Graph<VLabel, ELabel>.Vertex vtmp = etmp.getV(curr);
-                double g =  gscore.get(curr) + (etmp.getLabel()).weight();
-                double f = g + h.dist(vtmp.getLabel(), V1.getLabel());
-                if (closed.contains(vtmp)) {
-                    if (f >= (vtmp.getLabel()).weight()) {
-                        continue;
-                    }
+                int w = vtmp.getId();
+                if (self.closed.get(w)) {
+                    continue;
                 }
-                if (!open.contains(vtmp) || f < (vtmp.getLabel()).weight()) {
-                    camefrom.put(vtmp, curr);
-                    gscore.put(vtmp, g);
-                    (vtmp.getLabel()).setWeight(f);
-                    if (!open.contains(vtmp)) {
-                        open.add(vtmp);
-                    }
+                double g = self.dist[w];
+                double relaxed = self.dist[c]
+                    + eweighter.weight(etmp.getLabel());
+                if (relaxed < g) {
+                    g = relaxed;
+                    self.dist[w] = g;
+                    self.via.set(w, etmp);
+                    double p = pot.forward(vtmp);
+                    self.open.put(w, g + (self.forward ? p : -p));
+                }
+                if (g + other.dist[w] < best) {
+                    best = g + other.dist[w];
+                    meet = w;
                 }
             }
         }
-        return null;
+        if (meet < 0) {
+            return null;
+        }
+        tracePath(G.getVertex(meet), V0, fwd.via, path);
+        Collections.reverse(path);
+        tracePath(G.getVertex(meet), V1, bwd.via, path);
+        Graph<VLabel, ELabel>.Vertex v = V0;
+        double dist = 0.0;
+        vweighter.setWeight(v.getLabel(), dist);
+        for (Graph<VLabel, ELabel>.Edge e : path) {
+            v = e.getV(v);
+            dist += eweighter.weight(e.getLabel());
+            vweighter.setWeight(v.getLabel(), dist);
+        }
+        return path;
     }
 
-    /** Takes in VWEIGHTER and returns a comparator with a compare
-     *  method that utilizes the weight of vertices' label. Takes in
-     *  types VLABEL and ELABEL. */
-    static <VLabel, ELabel> Comparator<Graph<VLabel, ELabel>.Vertex>
-    pathComparator1(final Weighter<? super VLabel> vweighter) {
-        Comparator<Graph<VLabel, ELabel>.Vertex> comparator
-            = new Comparator<Graph<VLabel, ELabel>.Vertex>() {
-                @Override
-                public int compare(Graph<VLabel, ELabel>.Vertex v1,
-                    Graph<VLabel, ELabel>.Vertex v2) {
-                    return Double.compare(vweighter.weight(v1.getLabel()),
-                            vweighter.weight(v2.getLabel()));
-                }
-            };
-        return comparator;
+    /** Returns a path from V0 to V1 in G of minimum weight, according
+     *  to the weights of its edge labels, as for bidirectionalShortestPath
+     *  with the six-argument signature.  Uses the .weight and .setWeight
+     *  methods of the edges and vertices themselves to determine and set
+     *  weights. */
+    public static <VLabel extends Weightable, ELabel extends Weighted>
+    List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(Graph<VLabel, ELabel> G,
+        Graph<VLabel, ELabel>.Vertex V0, Graph<VLabel, ELabel>.Vertex V1,
+        Distancer<? super VLabel> h) {
+        return bidirectionalShortestPath(G, V0, V1, h, LABEL_WEIGHTER,
+                                         LABEL_WEIGHTING);
     }
 
-    /** Returns a comparator with a compare method that utilizes the weight
-     *  of vertices' label by extension. Takes in types VLABEL that
-     *  extends weightable and ELABEL that extends weighted. */
-    static <VLabel extends Weightable, ELabel extends Weighted>
-    Comparator<Graph<VLabel, ELabel>.Vertex>
-    pathComparator2() {
-        Comparator<Graph<VLabel, ELabel>.Vertex> comparator
-            = new Comparator<Graph<VLabel, ELabel>.Vertex>() {
-                @Override
-                public int compare(Graph<VLabel, ELabel>.Vertex v1,
-                    Graph<VLabel, ELabel>.Vertex v2) {
-                    return Double.compare((v1.getLabel()).weight(),
-                            (v2.getLabel()).weight());
-                }
-            };
-        return comparator;
-    }
+    /* Many-to-Many Distances */
 
-    /** Returns arraylist of edges for optimal path. Takes in arraylist
-     *  of arraylist of edges, EDGES, and stores only the optimal edge with
-     *  the lowest weight when there are multiple edges with the same
-     *  vertices (multi-graph). Uses EWEIGHTER to obtain the weight of
-     *  the edges. Takes in types VLABEL and ELABEL. */
-    static <VLabel, ELabel> ArrayList<Graph<VLabel, ELabel>.Edge>
-    finishPath(ArrayList<ArrayList<Graph<VLabel, ELabel>.Edge>> edges,
+    /** Returns the weights of shortest paths in G from each vertex in
+     *  SOURCES to each vertex in TARGETS, according to the edge weighter
+     *  EWEIGHTER, as a matrix whose entry [i][j] is the distance from
+     *  SOURCES.get(i) to TARGETS.get(j), or Double.POSITIVE_INFINITY if
+     *  that target is unreachable.  Edge weights must not be negative.
+     *
+     *  Runs one Dijkstra search per distinct source.  Each search serves
+     *  every target at once and stops as soon as the last target is
+     *  settled, and all the searches share their working storage.  This is
+     *  much cheaper than a separate shortestPath call for each pair.
+     *  VLABEL and ELABEL are the types of vertex and edge labels. */
+    public static <VLabel, ELabel> double[][]
+    distanceMatrix(Graph<VLabel, ELabel> G,
+        List<Graph<VLabel, ELabel>.Vertex> sources,
+        List<Graph<VLabel, ELabel>.Vertex> targets,
         Weighting<? super ELabel> eweighter) {
-        ArrayList<Graph<VLabel, ELabel>.Edge> result
-            = new ArrayList<Graph<VLabel, ELabel>.Edge>();
-        for (ArrayList<Graph<VLabel, ELabel>.Edge> similar : edges) {
-            Graph<VLabel, ELabel>.Edge contain = similar.remove(0);
-            for (Graph<VLabel, ELabel>.Edge e : similar) {
-                if (eweighter.weight(contain.getLabel())
-                        > eweighter.weight(e.getLabel())) {
-                    contain = e;
+        int n = G.vertexSize();
+        double[][] result = new double[sources.size()][targets.size()];
+        BitSet wanted = new BitSet(n);
+        for (Graph<VLabel, ELabel>.Vertex v : targets) {
+            wanted.set(v.getId());
+        }
+        int targetCount = wanted.cardinality();
+        IndexedHeap open = new IndexedHeap(n);
+        BitSet closed = new BitSet(n);
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IntList touched = new IntList();
+        HashMap<Graph<VLabel, ELabel>.Vertex, Integer> row
+            = new HashMap<Graph<VLabel, ELabel>.Vertex, Integer>();
+        for (int i = 0; i < sources.size(); i += 1) {
+            Graph<VLabel, ELabel>.Vertex source = sources.get(i);
+            if (row.containsKey(source)) {
+                result[i] = result[row.get(source)].clone();
+                continue;
+            }
+            row.put(source, i);
+            int start = source.getId();
+            dist[start] = 0.0;
+            touched.add(start);
+            open.put(start, 0.0);
+            int remaining = targetCount;
+            while (!open.isEmpty() && remaining > 0) {
+                int c = open.poll();
+                closed.set(c);
+                if (wanted.get(c)) {
+                    remaining -= 1;
+                }
+                Graph<VLabel, ELabel>.Vertex curr = G.getVertex(c);
+                for (Graph<VLabel, ELabel>.Edge etmp : G.outEdges(curr)) {
+                    int w = etmp.getV(curr).getId();
+                    double g = dist[c] + eweighter.weight(etmp.getLabel());
+                    if (!closed.get(w) && g < dist[w]) {
+                        if (dist[w] == Double.POSITIVE_INFINITY) {
+                            touched.add(w);
+                        }
+                        dist[w] = g;
+                        open.put(w, g);
+                    }
                 }
             }
-            result.add(contain);
+            for (int j = 0; j < targets.size(); j += 1) {
+                result[i][j] = dist[targets.get(j).getId()];
+            }
+            for (int k = 0; k < touched.size(); k += 1) {
+                dist[touched.get(k)] = Double.POSITIVE_INFINITY;
+            }
+            touched.clear();
+            closed.clear();
+            open.clear();
         }
         return result;
     }
 
-    /** Returns arraylist of edges for optimal path. Takes in arraylist
-     *  of arraylist of edges, EDGES, and stores only the optimal edge with
-     *  the lowest weight when there are multiple edges with the same
-     *  vertices (multi-graph). Uses EWEIGHTER to obtain the weight of
-     *  the edges. Takes in types VLABEL that extends weightable and
-     *  ELABEL that extends weighted. */
-    static <VLabel extends Weightable, ELabel extends Weighted>
-    ArrayList<Graph<VLabel, ELabel>.Edge>
-    finishPath(ArrayList<ArrayList<Graph<VLabel, ELabel>.Edge>> edges) {
-        ArrayList<Graph<VLabel, ELabel>.Edge> result
-            = new ArrayList<Graph<VLabel, ELabel>.Edge>();
-        for (ArrayList<Graph<VLabel, ELabel>.Edge> similar : edges) {
-            Graph<VLabel, ELabel>.Edge contain = similar.remove(0);
-            for (Graph<VLabel, ELabel>.Edge e : similar) {
-                if (contain.getLabel().weight() > e.getLabel().weight()) {
-                    contain = e;
-                }
+    /** Returns the weights of shortest paths in G from each vertex in
+     *  SOURCES to each vertex in TARGETS, as for the four-argument
+     *  distanceMatrix, using the .weight method of the edges to determine
+     *  their weights. */
+    public static <VLabel, ELabel extends Weighted> double[][]
+    distanceMatrix(Graph<VLabel, ELabel> G,
+        List<Graph<VLabel, ELabel>.Vertex> sources,
+        List<Graph<VLabel, ELabel>.Vertex> targets) {
+        return distanceMatrix(G, sources, targets, LABEL_WEIGHTING);
+    }
+
+    /** The state of one direction of a bidirectional search over a graph
+     *  with vertex labels VLABEL and edge labels ELABEL. */
+    private static class Search<VLabel, ELabel> {
+        /** State for a search over N vertices, which runs along outgoing
+         *  edges iff FORWARD. */
+        Search(int n, boolean forward) {
+            this.forward = forward;
+            open = new IndexedHeap(n);
+            closed = new BitSet(n);
+            dist = new double[n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            via = new ArrayList<Graph<VLabel, ELabel>.Edge>(
+                Collections.<Graph<VLabel, ELabel>.Edge>nCopies(n, null));
+        }
+
+        /** Begin the search at vertex id START, whose key is KEY. */
+        void start(int start, double key) {
+            dist[start] = 0.0;
+            open.put(start, key);
+        }
+
+        /** True iff this search follows outgoing edges. */
+        final boolean forward;
+        /** Vertex ids on the fringe, keyed by distance plus potential. */
+        final IndexedHeap open;
+        /** Vertex ids whose distances are final. */
+        final BitSet closed;
+        /** Best known distance from (or to) the start of the search. */
+        final double[] dist;
+        /** The last edge of the best known path to each vertex id. */
+        final ArrayList<Graph<VLabel, ELabel>.Edge> via;
+    }
+
+    /** The averaged potential for a bidirectional search between two
+     *  vertices, computed at most once per vertex. */
+    private static class Potential<VLabel, ELabel> {
+        /** The potential over N vertices for a search from V0 to V1 using
+         *  distance estimates from H. */
+        Potential(int n, Graph<VLabel, ELabel>.Vertex v0,
+                  Graph<VLabel, ELabel>.Vertex v1,
+                  Distancer<? super VLabel> h) {
+            _v0 = v0.getLabel();
+            _v1 = v1.getLabel();
+            _h = h;
+            _values = new double[n];
+            _known = new BitSet(n);
+        }
+
+        /** Returns the forward potential of V.  The backward potential is
+         *  its negation. */
+        double forward(Graph<VLabel, ELabel>.Vertex v) {
+            int id = v.getId();
+            if (!_known.get(id)) {
+                _values[id] = (_h.dist(v.getLabel(), _v1)
+                               - _h.dist(_v0, v.getLabel())) / 2.0;
+                _known.set(id);
             }
-            result.add(contain);
+            return _values[id];
+        }
+
+        /** Labels of the ends of the search. */
+        private final VLabel _v0, _v1;
+        /** The distance estimate. */
+        private final Distancer<? super VLabel> _h;
+        /** Cached potentials, by vertex id. */
+        private final double[] _values;
+        /** Vertex ids whose potentials are in _VALUES. */
+        private final BitSet _known;
+    }
+
+    /** Appends to PATH the edges that lead from vertex FROM back to
+     *  vertex TO, where VIA holds, for each vertex id, the edge by which a
+     *  search reached that vertex.  The edges are in the order followed,
+     *  from FROM to TO. */
+    private static <VLabel, ELabel> void
+    tracePath(Graph<VLabel, ELabel>.Vertex from,
+        Graph<VLabel, ELabel>.Vertex to,
+        ArrayList<Graph<VLabel, ELabel>.Edge> via,
+        ArrayList<Graph<VLabel, ELabel>.Edge> path) {
+        Graph<VLabel, ELabel>.Vertex v = from;
+        while (v != to) {
+            Graph<VLabel, ELabel>.Edge e = via.get(v.getId());
+            path.add(e);
+            v = e.getV(v);
         }
-        return result;
     }
 
+    /** A weighter that reads and sets the weights of Weightable labels
+     *  themselves. */
+    private static final Weighter<Weightable> LABEL_WEIGHTER =
+        new Weighter<Weightable>() {
+            @Override
+            public double weight(Weightable x) {
+                return x.weight();
+            }
+
+            @Override
+            public void setWeight(Weightable x, double v) {
+                x.setWeight(v);
+            }
+        };
+
+    /** A weighting that reads the weights of Weighted labels themselves. */
+    private static final Weighting<Weighted> LABEL_WEIGHTING =
+        new Weighting<Weighted>() {
+            @Override
+            public double weight(Weighted x) {
+                return x.weight();
+            }
+        };
+
     /** Returns a distancer whose dist method always returns 0. */
     public static final Distancer<Object> ZERO_DISTANCER =
         new Distancer<Object>() {
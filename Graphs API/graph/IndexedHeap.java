@@ -0,0 +1,147 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A binary min-heap of the integers 0 .. capacity-1, each with a double
+ *  priority.  Because every item records its position in the heap,
+ *  membership tests are constant time and the priority of an item
+ *  already in the heap can be changed in logarithmic time.  Items
+ *  are typically vertex ids.
+ *  @author Brian Truong.
+ */
+class IndexedHeap {
+
+    /** An empty heap that can hold the items 0 .. CAPACITY-1. */
+    IndexedHeap(int capacity) {
+        _heap = new int[capacity];
+        _pos = new int[capacity];
+        _keys = new double[capacity];
+        Arrays.fill(_pos, -1);
+    }
+
+    /** Returns the number of items in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns true iff I am empty. */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Returns true iff ITEM is in me. */
+    boolean contains(int item) {
+        return _pos[item] >= 0;
+    }
+
+    /** Returns the priority of ITEM, which must be in me. */
+    double key(int item) {
+        return _keys[item];
+    }
+
+    /** Returns the item with the smallest priority without removing it.
+     *  Assumes I am not empty. */
+    int peek() {
+        return _heap[0];
+    }
+
+    /** Returns the smallest priority in me, or Double.POSITIVE_INFINITY
+     *  if I am empty. */
+    double peekKey() {
+        return _size == 0 ? Double.POSITIVE_INFINITY : _keys[_heap[0]];
+    }
+
+    /** Adds ITEM with priority KEY, or changes the priority of ITEM to
+     *  KEY if it is already in me. */
+    void put(int item, double key) {
+        if (_pos[item] < 0) {
+            _keys[item] = key;
+            _pos[item] = _size;
+            _heap[_size] = item;
+            _size += 1;
+            siftUp(_size - 1);
+        } else if (key < _keys[item]) {
+            _keys[item] = key;
+            siftUp(_pos[item]);
+        } else {
+            _keys[item] = key;
+            siftDown(_pos[item]);
+        }
+    }
+
+    /** Removes and returns the item with the smallest priority.  Assumes
+     *  I am not empty. */
+    int poll() {
+        int result = _heap[0];
+        _size -= 1;
+        _pos[result] = -1;
+        if (_size > 0) {
+            _heap[0] = _heap[_size];
+            _pos[_heap[0]] = 0;
+            siftDown(0);
+        }
+        return result;
+    }
+
+    /** Removes all items from me. */
+    void clear() {
+        for (int i = 0; i < _size; i += 1) {
+            _pos[_heap[i]] = -1;
+        }
+        _size = 0;
+    }
+
+    /** Moves the item at heap position K up until its parent is no
+     *  larger. */
+    private void siftUp(int k) {
+        int item = _heap[k];
+        double key = _keys[item];
+        while (k > 0) {
+            int parent = (k - 1) / 2;
+            if (_keys[_heap[parent]] <= key) {
+                break;
+            }
+            place(_heap[parent], k);
+            k = parent;
+        }
+        place(item, k);
+    }
+
+    /** Moves the item at heap position K down until neither child is
+     *  smaller. */
+    private void siftDown(int k) {
+        int item = _heap[k];
+        double key = _keys[item];
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= _size) {
+                break;
+            }
+            if (child + 1 < _size
+                && _keys[_heap[child + 1]] < _keys[_heap[child]]) {
+                child += 1;
+            }
+            if (_keys[_heap[child]] >= key) {
+                break;
+            }
+            place(_heap[child], k);
+            k = child;
+        }
+        place(item, k);
+    }
+
+    /** Stores ITEM at heap position K. */
+    private void place(int item, int k) {
+        _heap[k] = item;
+        _pos[item] = k;
+    }
+
+    /** The items in heap order; only the first _SIZE are meaningful. */
+    private final int[] _heap;
+    /** Position of each item in _HEAP, or -1 if it is not in me. */
+    private final int[] _pos;
+    /** Priority of each item. */
+    private final double[] _keys;
+    /** Number of items in me. */
+    private int _size;
+}
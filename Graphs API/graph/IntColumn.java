@@ -0,0 +1,84 @@
+package graph;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** A fixed sequence of ints, held either in an array or in regions of a
+ *  memory-mapped file, as for a Column.
+ *  @author Brian Truong.
+ */
+abstract class IntColumn extends Column {
+
+    /** Returns item K, where 0 <= K < size(). */
+    abstract int get(int k);
+
+    @Override
+    void put(DataOutputStream out, int k) throws IOException {
+        out.writeInt(get(k));
+    }
+
+    /** Returns a column holding ITEMS, which it does not copy. */
+    static IntColumn of(int[] items) {
+        return new ArrayColumn(items);
+    }
+
+    /** Returns a read-only column of SIZE items mapped from CHANNEL,
+     *  starting at byte POSITION, in big-endian order. */
+    static IntColumn map(FileChannel channel, long position, int size)
+        throws IOException {
+        return new MappedColumn(map(channel, position, size, BYTES), size);
+    }
+
+    /** A column held in an array. */
+    private static final class ArrayColumn extends IntColumn {
+
+        /** A column holding ITEMS. */
+        ArrayColumn(int[] items) {
+            _items = items;
+        }
+
+        @Override
+        int get(int k) {
+            return _items[k];
+        }
+
+        @Override
+        int size() {
+            return _items.length;
+        }
+
+        /** My items. */
+        private final int[] _items;
+    }
+
+    /** A column held in memory-mapped file regions. */
+    private static final class MappedColumn extends IntColumn {
+
+        /** A column of SIZE items held in CHUNKS, as returned by
+         *  Column.map. */
+        MappedColumn(ByteBuffer[] chunks, int size) {
+            _chunks = chunks;
+            _size = size;
+        }
+
+        @Override
+        int get(int k) {
+            return _chunks[chunk(k)].getInt(offset(k, BYTES));
+        }
+
+        @Override
+        int size() {
+            return _size;
+        }
+
+        /** The mapped regions holding my items. */
+        private final ByteBuffer[] _chunks;
+        /** Number of items in me. */
+        private final int _size;
+    }
+
+    /** Number of bytes in an item. */
+    static final int BYTES = 4;
+}
@@ -0,0 +1,590 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/** A directed graph whose vertices are the integers 0 .. n-1 and whose
+ *  edges carry double weights, stored in flat primitive arrays.  It
+ *  suits routing over large, fixed networks, where boxing labels and
+ *  looking up weights through Weightings would dominate the cost of a
+ *  search.
+ *
+ *  Edges are numbered 0 .. m-1 in the order given to the constructor,
+ *  and all routines report edges by these numbers, so clients can keep
+ *  their own per-edge data in parallel arrays or lists.  The outgoing
+ *  and incoming edges of each vertex are stored contiguously
+ *  (compressed sparse row form).  An IntGraph cannot be changed once
+ *  built, and its searches may be run from several threads at once.
+ *
+ *  An IntGraph may be saved to a file and later mapped back into memory
+ *  from it.  A mapped graph keeps its arrays in the operating system's
+ *  page cache rather than the Java heap, so graphs larger than the heap
+ *  can be searched, and mapping takes almost no time however large the
+ *  graph is.  Each thread's searches still use working arrays on the
+ *  heap of a size proportional to the number of vertices.
+ *  @author Brian Truong.
+ */
+public class IntGraph {
+
+    /** An estimate of the weight of a shortest path between two vertices,
+     *  for guiding shortestPath. */
+    public interface Heuristic {
+        /** Returns an estimate of the weight of a shortest path from
+         *  vertex V0 to vertex V1. */
+        double estimate(int v0, int v1);
+    }
+
+    /** A heuristic that always estimates 0, so that shortestPath
+     *  performs Dijkstra's algorithm. */
+    public static final Heuristic ZERO = new Heuristic() {
+            @Override
+            public double estimate(int v0, int v1) {
+                return 0.0;
+            }
+        };
+
+    /** A graph with N vertices and, for each k, an edge numbered k from
+     *  vertex TAILS[k] to vertex HEADS[k] of weight WEIGHTS[k].  The
+     *  three arrays must have the same length.  They are copied. */
+    public IntGraph(int n, int[] tails, int[] heads, double[] weights) {
+        int m = tails.length;
+        if (heads.length != m || weights.length != m) {
+            throw new IllegalArgumentException("edge arrays differ in length");
+        }
+        for (int k = 0; k < m; k += 1) {
+            if (tails[k] < 0 || tails[k] >= n || heads[k] < 0
+                || heads[k] >= n) {
+                throw new IllegalArgumentException("no such vertex");
+            }
+        }
+        _n = n;
+        int[] outStart = new int[n + 1], inStart = new int[n + 1];
+        _outEdges = IntColumn.of(group(n, tails, outStart));
+        _inEdges = IntColumn.of(group(n, heads, inStart));
+        _outStart = IntColumn.of(outStart);
+        _inStart = IntColumn.of(inStart);
+        _tails = IntColumn.of(tails.clone());
+        _heads = IntColumn.of(heads.clone());
+        _weights = DoubleColumn.of(weights.clone());
+    }
+
+    /** A graph with N vertices whose edges are given by TAILS, HEADS, and
+     *  WEIGHTS, indexed by edge number, and grouped by OUTSTART and
+     *  OUTEDGES and by INSTART and INEDGES as for the corresponding
+     *  fields. */
+    private IntGraph(int n, IntColumn tails, IntColumn heads,
+                     DoubleColumn weights, IntColumn outStart,
+                     IntColumn outEdges, IntColumn inStart,
+                     IntColumn inEdges) {
+        _n = n;
+        _tails = tails;
+        _heads = heads;
+        _weights = weights;
+        _outStart = outStart;
+        _outEdges = outEdges;
+        _inStart = inStart;
+        _inEdges = inEdges;
+    }
+
+    /** Writes me to the file named FILENAME, from which map can restore
+     *  me. */
+    public void save(String fileName) throws IOException {
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(fileName)));
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Writes me to OUT in the form save uses.  The result occupies
+     *  savedSize() bytes. */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(_n);
+        out.writeInt(edgeSize());
+        out.writeInt(0);
+        _weights.write(out);
+        _tails.write(out);
+        _heads.write(out);
+        _outStart.write(out);
+        _outEdges.write(out);
+        _inStart.write(out);
+        _inEdges.write(out);
+    }
+
+    /** Returns the number of bytes save and write produce for me. */
+    public long savedSize() {
+        return savedSize(_n, edgeSize());
+    }
+
+    /** Returns the graph saved in the file named FILENAME, mapped into
+     *  memory rather than read.  The file must not change while the
+     *  result is in use. */
+    public static IntGraph map(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            IntGraph result = map(file.getChannel(), 0);
+            if (result.savedSize() != file.length()) {
+                throw new IOException(fileName + " is not a saved IntGraph");
+            }
+            return result;
+        } finally {
+            file.close();
+        }
+    }
+
+    /** Returns the graph written by write starting at byte POSITION of
+     *  CHANNEL, mapped into memory rather than read.  The mapping
+     *  remains valid after CHANNEL is closed, but the file must not
+     *  change while the result is in use. */
+    public static IntGraph map(FileChannel channel, long position)
+        throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) HEADER);
+        while (header.hasRemaining()
+               && channel.read(header, position + header.position()) > 0) {
+            continue;
+        }
+        header.flip();
+        if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+            throw new IOException("not a saved IntGraph");
+        }
+        int n = header.getInt(), m = header.getInt();
+        if (n < 0 || m < 0
+            || channel.size() - position < savedSize(n, m)) {
+            throw new IOException("saved IntGraph is truncated");
+        }
+        long pos = position + HEADER;
+        DoubleColumn weights = DoubleColumn.map(channel, pos, m);
+        pos += (long) DoubleColumn.BYTES * m;
+        IntColumn[] columns = new IntColumn[6];
+        int[] sizes = { m, m, n + 1, m, n + 1, m };
+        for (int i = 0; i < columns.length; i += 1) {
+            columns[i] = IntColumn.map(channel, pos, sizes[i]);
+            pos += (long) IntColumn.BYTES * sizes[i];
+        }
+        return new IntGraph(n, columns[0], columns[1], weights,
+                            columns[2], columns[3], columns[4],
+                            columns[5]);
+    }
+
+    /** Returns the number of vertices. */
+    public int vertexSize() {
+        return _n;
+    }
+
+    /** Returns the number of edges. */
+    public int edgeSize() {
+        return _tails.size();
+    }
+
+    /** Returns the vertex edge E leaves. */
+    public int tail(int e) {
+        return _tails.get(e);
+    }
+
+    /** Returns the vertex edge E enters. */
+    public int head(int e) {
+        return _heads.get(e);
+    }
+
+    /** Returns the weight of edge E. */
+    public double weight(int e) {
+        return _weights.get(e);
+    }
+
+    /** Returns the number of edges leaving V. */
+    public int outDegree(int v) {
+        return _outStart.get(v + 1) - _outStart.get(v);
+    }
+
+    /** Returns the number of edges entering V. */
+    public int inDegree(int v) {
+        return _inStart.get(v + 1) - _inStart.get(v);
+    }
+
+    /** Returns edge K leaving V, where 0 <= K < outDegree(V).  The edges
+     *  leaving V are in increasing order of edge number. */
+    public int outEdge(int v, int k) {
+        return _outEdges.get(_outStart.get(v) + k);
+    }
+
+    /** Returns edge K entering V, where 0 <= K < inDegree(V).  The edges
+     *  entering V are in increasing order of edge number. */
+    public int inEdge(int v, int k) {
+        return _inEdges.get(_inStart.get(v) + k);
+    }
+
+    /** Returns the weights of shortest paths from SOURCE to each vertex,
+     *  indexed by vertex, with Double.POSITIVE_INFINITY for vertices
+     *  unreachable from SOURCE.  Edge weights must not be negative. */
+    public double[] distances(int source) {
+        double[] dist = new double[_n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedHeap open = new IndexedHeap(_n);
+        dist[source] = 0.0;
+        open.put(source, 0.0);
+        while (!open.isEmpty()) {
+            int x = open.poll();
+            for (int i = _outStart.get(x), end = _outStart.get(x + 1);
+                 i < end; i += 1) {
+                int e = _outEdges.get(i);
+                int y = _heads.get(e);
+                double d = dist[x] + _weights.get(e);
+                if (d < dist[y]) {
+                    dist[y] = d;
+                    open.put(y, d);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** Returns the edges of a shortest path from V0 to V1, in order, or
+     *  null if V1 is unreachable from V0.  Edge weights must not be
+     *  negative. */
+    public int[] shortestPath(int v0, int v1) {
+        return shortestPath(v0, v1, ZERO);
+    }
+
+    /** Returns the edges of a shortest path from V0 to V1, in order, or
+     *  null if V1 is unreachable from V0, using A* search guided by H.
+     *  H.estimate(v, V1) must never exceed the weight of a shortest path
+     *  from v to V1, and edge weights must not be negative.  A vertex is
+     *  searched again if a shorter path to it turns up later, so H need
+     *  not be consistent, although the search is faster if it is. */
+    public int[] shortestPath(int v0, int v1, Heuristic h) {
+        Workspace work = _workspace.get();
+        double[] dist = work.dist;
+        int[] via = work.via;
+        IndexedHeap open = work.open;
+        work.start(v0, h.estimate(v0, v1));
+        int[] result = null;
+        while (!open.isEmpty()) {
+            int x = open.poll();
+            if (x == v1) {
+                result = trace(v0, v1, via);
+                break;
+            }
+            for (int i = _outStart.get(x), end = _outStart.get(x + 1);
+                 i < end; i += 1) {
+                int e = _outEdges.get(i);
+                int y = _heads.get(e);
+                double d = dist[x] + _weights.get(e);
+                if (d < dist[y]) {
+                    if (dist[y] == Double.POSITIVE_INFINITY) {
+                        work.touched.add(y);
+                    }
+                    dist[y] = d;
+                    via[y] = e;
+                    open.put(y, d + h.estimate(y, v1));
+                }
+            }
+        }
+        work.reset();
+        return result;
+    }
+
+    /** Returns the edges of a shortest path from V0 to V1, in order, or
+     *  null if V1 is unreachable from V0.  This has the same requirements
+     *  on H as shortestPath, but searches forward from V0 along outgoing
+     *  edges and backward from V1 along incoming edges at the same time,
+     *  stopping once the two searches can no longer improve the best path
+     *  where they meet.  Both searches use the potential
+     *  (H.estimate(v, V1) - H.estimate(V0, v)) / 2 for each vertex v, as
+     *  Graphs.bidirectionalShortestPath does, which requires H to be
+     *  consistent: H.estimate(u, V1) <= weight of edge (u, v) +
+     *  H.estimate(v, V1), and likewise for H.estimate(V0, v). */
+    public int[] bidirectionalShortestPath(int v0, int v1, Heuristic h) {
+        if (v0 == v1) {
+            return new int[0];
+        }
+        Workspace fwd = _workspace.get(), bwd = _reverseWorkspace.get();
+        fwd.start(v0, potential(fwd, v0, v0, v1, h));
+        bwd.start(v1, -potential(bwd, v1, v0, v1, h));
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (!fwd.open.isEmpty() && !bwd.open.isEmpty()
+               && fwd.open.peekKey() + bwd.open.peekKey() < best) {
+            boolean forward = fwd.open.size() <= bwd.open.size();
+            Workspace self = forward ? fwd : bwd,
+                other = forward ? bwd : fwd;
+            IntColumn start = forward ? _outStart : _inStart,
+                edges = forward ? _outEdges : _inEdges,
+                ends = forward ? _heads : _tails;
+            int x = self.open.poll();
+            self.closed[x] = true;
+            for (int i = start.get(x), end = start.get(x + 1); i < end;
+                 i += 1) {
+                int e = edges.get(i);
+                int y = ends.get(e);
+                if (self.closed[y]) {
+                    continue;
+                }
+                double d = self.dist[y];
+                double relaxed = self.dist[x] + _weights.get(e);
+                if (relaxed < d) {
+                    if (d == Double.POSITIVE_INFINITY) {
+                        self.touched.add(y);
+                    }
+                    d = relaxed;
+                    self.dist[y] = d;
+                    self.via[y] = e;
+                    double p = potential(self, y, v0, v1, h);
+                    self.open.put(y, d + (forward ? p : -p));
+                }
+                if (d + other.dist[y] < best) {
+                    best = d + other.dist[y];
+                    meet = y;
+                }
+            }
+        }
+        int[] result = null;
+        if (meet >= 0) {
+            int[] head = trace(v0, meet, fwd.via);
+            int count = 0;
+            for (int v = meet; v != v1; v = _heads.get(bwd.via[v])) {
+                count += 1;
+            }
+            result = Arrays.copyOf(head, head.length + count);
+            int k = head.length;
+            for (int v = meet; v != v1; v = _heads.get(bwd.via[v])) {
+                result[k] = bwd.via[v];
+                k += 1;
+            }
+        }
+        fwd.reset();
+        bwd.reset();
+        return result;
+    }
+
+    /** Returns the forward potential of vertex V for a bidirectional search
+     *  from V0 to V1 guided by H, computing it at most once per search and
+     *  keeping it in WORK.  The backward potential is its negation. */
+    private double potential(Workspace work, int v, int v0, int v1,
+                             Heuristic h) {
+        if (Double.isNaN(work.potential[v])) {
+            work.potential[v] = (h.estimate(v, v1) - h.estimate(v0, v))
+                / 2.0;
+        }
+        return work.potential[v];
+    }
+
+    /** Returns the vertices reachable from SOURCE in breadth-first order:
+     *  SOURCE, then the vertices one edge away, and so on, where the
+     *  successors of each vertex are taken in increasing order of edge
+     *  number. */
+    public int[] breadthFirstOrder(int source) {
+        boolean[] seen = new boolean[_n];
+        IntList order = new IntList();
+        seen[source] = true;
+        order.add(source);
+        for (int head = 0; head < order.size(); head += 1) {
+            int x = order.get(head);
+            for (int i = _outStart.get(x), end = _outStart.get(x + 1);
+                 i < end; i += 1) {
+                int y = _heads.get(_outEdges.get(i));
+                if (!seen[y]) {
+                    seen[y] = true;
+                    order.add(y);
+                }
+            }
+        }
+        return order.toArray();
+    }
+
+    /** Returns the vertices reachable from SOURCE in depth-first
+     *  preorder, where the successors of each vertex are taken in
+     *  increasing order of edge number. */
+    public int[] depthFirstOrder(int source) {
+        boolean[] seen = new boolean[_n];
+        IntList order = new IntList();
+        IntList stack = new IntList();
+        IntList next = new IntList();
+        seen[source] = true;
+        order.add(source);
+        stack.add(source);
+        next.add(_outStart.get(source));
+        while (stack.size() > 0) {
+            int top = stack.size() - 1;
+            int x = stack.get(top);
+            int i = next.get(top);
+            if (i == _outStart.get(x + 1)) {
+                stack.pop();
+                next.pop();
+                continue;
+            }
+            next.set(top, i + 1);
+            int y = _heads.get(_outEdges.get(i));
+            if (!seen[y]) {
+                seen[y] = true;
+                order.add(y);
+                stack.add(y);
+                next.add(_outStart.get(y));
+            }
+        }
+        return order.toArray();
+    }
+
+    /** Returns a copy of me in which vertex v is numbered IDS[v], where
+     *  IDS is a permutation of 0 .. vertexSize()-1, such as VertexOrder
+     *  computes.  Edges keep their numbers and weights, so per-edge data
+     *  kept by clients remains valid, and the edges leaving or entering
+     *  each vertex stay in increasing order of edge number.  Throws
+     *  IllegalArgumentException if IDS is not a permutation. */
+    public IntGraph renumber(int[] ids) {
+        VertexOrder.checkPermutation(ids, _n);
+        int m = edgeSize();
+        int[] tails = new int[m], heads = new int[m];
+        double[] weights = new double[m];
+        for (int e = 0; e < m; e += 1) {
+            tails[e] = ids[_tails.get(e)];
+            heads[e] = ids[_heads.get(e)];
+            weights[e] = _weights.get(e);
+        }
+        int[] outStart = new int[_n + 1], inStart = new int[_n + 1];
+        int[] outEdges = group(_n, tails, outStart),
+            inEdges = group(_n, heads, inStart);
+        return new IntGraph(_n, IntColumn.of(tails), IntColumn.of(heads),
+                            DoubleColumn.of(weights), IntColumn.of(outStart),
+                            IntColumn.of(outEdges), IntColumn.of(inStart),
+                            IntColumn.of(inEdges));
+    }
+
+    /** Returns the number of bytes write produces for a graph of N
+     *  vertices and M edges. */
+    private static long savedSize(int n, int m) {
+        return HEADER + (long) DoubleColumn.BYTES * m
+            + (long) IntColumn.BYTES * (4L * m + 2L * (n + 1L));
+    }
+
+    /** Returns the edges by which VIA reaches V1 back from V0, in order
+     *  from V0, where VIA[v] is the last edge on the path to v. */
+    private int[] trace(int v0, int v1, int[] via) {
+        int count = 0;
+        for (int v = v1; v != v0; v = _tails.get(via[v])) {
+            count += 1;
+        }
+        int[] path = new int[count];
+        for (int v = v1; v != v0; v = _tails.get(via[v])) {
+            count -= 1;
+            path[count] = via[v];
+        }
+        return path;
+    }
+
+    /** Returns the edge numbers 0 .. ENDS.length-1 grouped by the vertex
+     *  ENDS gives for each, in increasing order within each group, and
+     *  sets START so that the group for vertex v occupies positions
+     *  START[v] .. START[v+1]-1 of the result.  There are N vertices. */
+    private static int[] group(int n, int[] ends, int[] start) {
+        for (int e = 0; e < ends.length; e += 1) {
+            start[ends[e] + 1] += 1;
+        }
+        for (int v = 0; v < n; v += 1) {
+            start[v + 1] += start[v];
+        }
+        int[] next = Arrays.copyOf(start, n);
+        int[] result = new int[ends.length];
+        for (int e = 0; e < ends.length; e += 1) {
+            result[next[ends[e]]] = e;
+            next[ends[e]] += 1;
+        }
+        return result;
+    }
+
+    /** The state of one search, kept between searches so that each costs
+     *  time proportional to the vertices it touches. */
+    private class Workspace {
+        /** Search state for my vertices. */
+        Workspace() {
+            dist = new double[_n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            via = new int[_n];
+            closed = new boolean[_n];
+            potential = new double[_n];
+            Arrays.fill(potential, Double.NaN);
+            open = new IndexedHeap(_n);
+            touched = new IntList();
+        }
+
+        /** Begin a search at vertex V, whose key is KEY. */
+        void start(int v, double key) {
+            dist[v] = 0.0;
+            via[v] = -1;
+            touched.add(v);
+            open.put(v, key);
+        }
+
+        /** Restore the state for the next search. */
+        void reset() {
+            for (int i = 0; i < touched.size(); i += 1) {
+                int v = touched.get(i);
+                dist[v] = Double.POSITIVE_INFINITY;
+                closed[v] = false;
+                potential[v] = Double.NaN;
+            }
+            touched.clear();
+            open.clear();
+        }
+
+        /** Best known distance to each vertex. */
+        final double[] dist;
+        /** Last edge on the best known path to each vertex. */
+        final int[] via;
+        /** Vertices whose distances are final, in a bidirectional
+         *  search. */
+        final boolean[] closed;
+        /** Forward potential of each vertex, or NaN if not yet computed,
+         *  in a bidirectional search. */
+        final double[] potential;
+        /** Vertices on the fringe. */
+        final IndexedHeap open;
+        /** Vertices whose distances are not infinite. */
+        final IntList touched;
+    }
+
+    /** Identifies a file written by save. */
+    private static final int MAGIC = 0x49475231;
+    /** Number of bytes before the arrays in a file written by save. */
+    private static final long HEADER = 16;
+
+    /** Number of vertices. */
+    private final int _n;
+    /** End vertices of each edge, by edge number. */
+    private final IntColumn _tails, _heads;
+    /** Weight of each edge, by edge number. */
+    private final DoubleColumn _weights;
+    /** The edges leaving vertex v are _OUTEDGES[_OUTSTART[v] ..
+     *  _OUTSTART[v+1]-1]. */
+    private final IntColumn _outStart, _outEdges;
+    /** The edges entering vertex v are _INEDGES[_INSTART[v] ..
+     *  _INSTART[v+1]-1]. */
+    private final IntColumn _inStart, _inEdges;
+
+    /** Search state for each thread. */
+    private final ThreadLocal<Workspace> _workspace
+        = new ThreadLocal<Workspace>() {
+                @Override
+                protected Workspace initialValue() {
+                    return new Workspace();
+                }
+            };
+    /** State for the backward half of each thread's bidirectional
+     *  searches. */
+    private final ThreadLocal<Workspace> _reverseWorkspace
+        = new ThreadLocal<Workspace>() {
+                @Override
+                protected Workspace initialValue() {
+                    return new Workspace();
+                }
+            };
+}
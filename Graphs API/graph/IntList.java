@@ -0,0 +1,64 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A growable list of ints, stored without boxing.
+ *  @author Brian Truong.
+ */
+class IntList {
+
+    /** An empty list. */
+    IntList() {
+        this(4);
+    }
+
+    /** An empty list with room for CAPACITY items before it must grow. */
+    IntList(int capacity) {
+        _items = new int[Math.max(capacity, 1)];
+    }
+
+    /** Returns the number of items in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns item K, where 0 <= K < size(). */
+    int get(int k) {
+        return _items[k];
+    }
+
+    /** Replaces item K with X. */
+    void set(int k, int x) {
+        _items[k] = x;
+    }
+
+    /** Appends X. */
+    void add(int x) {
+        if (_size == _items.length) {
+            _items = Arrays.copyOf(_items, 2 * _size);
+        }
+        _items[_size] = x;
+        _size += 1;
+    }
+
+    /** Removes and returns the last item.  Assumes I am not empty. */
+    int pop() {
+        _size -= 1;
+        return _items[_size];
+    }
+
+    /** Removes all items. */
+    void clear() {
+        _size = 0;
+    }
+
+    /** Returns my items as a new array. */
+    int[] toArray() {
+        return Arrays.copyOf(_items, _size);
+    }
+
+    /** My items; only the first _SIZE are meaningful. */
+    private int[] _items;
+    /** Number of items in me. */
+    private int _size;
+}
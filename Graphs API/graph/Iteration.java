@@ -1,6 +1,8 @@
 package graph;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 /** An Iteration<TYPE> is an Iterator<TYPE> that may also be used in a foreach
  *  loop.  That is, it implements the Interable<TYPE> interface by simply
@@ -44,11 +46,45 @@ public abstract class Iteration<Type>
         private Iterator<Type> _iter;
     }
 
+    /** An Iteration over a List that reads it by index. */
+    private static class ListIteration<Type> extends Iteration<Type> {
+        /** An iteration over the items of LIST, in order. */
+        ListIteration(List<Type> list) {
+            _list = list;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < _list.size();
+        }
+
+        @Override
+        public Type next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _next += 1;
+            return _list.get(_next - 1);
+        }
+
+        /** The list with which I was constructed. */
+        private List<Type> _list;
+        /** Index of my next item. */
+        private int _next;
+    }
+
     /** Returns an Iteration<TYPE> that delegates to IT. */
     static <Type> Iteration<Type> iteration(Iterator<Type> it) {
         return new SimpleIteration<>(it);
     }
 
+    /** Returns an Iteration<TYPE> over the items of LIST, reading LIST
+     *  directly rather than through a separate Iterator.  LIST should
+     *  support fast random access. */
+    static <Type> Iteration<Type> iteration(List<Type> list) {
+        return new ListIteration<>(list);
+    }
+
     /** Returns an Iteration<TYPE> that delegates to ITERABLE. */
     static <Type> Iteration<Type> iteration(Iterable<Type> iterable) {
         return new SimpleIteration<>(iterable.iterator());
@@ -0,0 +1,128 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** A Distancer for the vertex labels of a graph that bounds the weight of
+ *  a shortest path using precomputed distances to and from a few landmark
+ *  vertices (the "ALT" heuristic).  By the triangle inequality, for any
+ *  landmark L the weight of a shortest path from v to w is at least
+ *  d(L, w) - d(L, v) and at least d(v, L) - d(w, L); dist returns the
+ *  largest such bound.  It never overestimates, so it is an admissible
+ *  (and consistent) heuristic for Graphs.shortestPath, and it is usually
+ *  much tighter than a geometric estimate on networks whose shortest
+ *  paths wind about.
+ *
+ *  Landmarks are chosen one at a time, each as the vertex farthest from
+ *  those already chosen.  Vertices are identified by label, so labels
+ *  should be distinct; dist returns 0 for labels that are unknown or
+ *  that belong to more than one vertex.  The distancer reflects the
+ *  graph at the time it was built; once the graph is modified its
+ *  answers may no longer be lower bounds.
+ *  @author Brian Truong.
+ */
+public class LandmarkDistancer<VLabel, ELabel>
+    implements Distancer<VLabel> {
+
+    /** A distancer over the vertices of G using up to LANDMARKS landmarks,
+     *  where the weight of each edge of G is given by applying EWEIGHTER
+     *  to its label.  Weights must not be negative. */
+    public LandmarkDistancer(Graph<VLabel, ELabel> G, int landmarks,
+                             Weighting<? super ELabel> eweighter) {
+        _n = G.vertexSize();
+        _ids = new HashMap<VLabel, Integer>();
+        for (int v = 0; v < _n; v += 1) {
+            VLabel label = G.getVertex(v).getLabel();
+            _ids.put(label, _ids.containsKey(label) ? AMBIGUOUS : v);
+        }
+        int k = Math.max(0, Math.min(landmarks, _n));
+        _from = new double[k][];
+        _to = new double[k][];
+        IndexedHeap open = new IndexedHeap(_n);
+        double[] nearest = new double[_n];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int landmark = 0;
+        for (int i = 0; i < k; i += 1) {
+            _from[i] = distances(G, landmark, true, eweighter, open);
+            _to[i] = G.isDirected()
+                ? distances(G, landmark, false, eweighter, open) : _from[i];
+            nearest[landmark] = -1.0;
+            for (int v = 0; v < _n; v += 1) {
+                nearest[v] = Math.min(nearest[v], _from[i][v]);
+                if (nearest[v] > nearest[landmark]) {
+                    landmark = v;
+                }
+            }
+        }
+    }
+
+    @Override
+    public double dist(VLabel v0, VLabel v1) {
+        Integer id0 = _ids.get(v0), id1 = _ids.get(v1);
+        if (id0 == null || id1 == null || id0 == AMBIGUOUS
+            || id1 == AMBIGUOUS) {
+            return 0.0;
+        }
+        int v = id0, w = id1;
+        double result = 0.0;
+        for (int i = 0; i < _from.length; i += 1) {
+            double[] from = _from[i], to = _to[i];
+            if (from[v] != Double.POSITIVE_INFINITY
+                && from[w] != Double.POSITIVE_INFINITY) {
+                result = Math.max(result, from[w] - from[v]);
+            }
+            if (to[v] != Double.POSITIVE_INFINITY
+                && to[w] != Double.POSITIVE_INFINITY) {
+                result = Math.max(result, to[v] - to[w]);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the number of landmarks I use. */
+    public int landmarks() {
+        return _from.length;
+    }
+
+    /** Returns the weights of shortest paths in G from (if FORWARD) or to
+     *  (otherwise) the vertex with id SOURCE to or from every vertex, by
+     *  id, where EWEIGHTER gives edge weights.  OPEN is an empty heap
+     *  large enough for every vertex id, and is left empty. */
+    private double[] distances(Graph<VLabel, ELabel> G, int source,
+                               boolean forward,
+                               Weighting<? super ELabel> eweighter,
+                               IndexedHeap open) {
+        double[] dist = new double[_n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0.0;
+        open.put(source, 0.0);
+        while (!open.isEmpty()) {
+            int x = open.poll();
+            Graph<VLabel, ELabel>.Vertex vx = G.getVertex(x);
+            for (Graph<VLabel, ELabel>.Edge e
+                     : forward ? G.outEdges(vx) : G.inEdges(vx)) {
+                int y = e.getV(vx).getId();
+                double d = dist[x] + eweighter.weight(e.getLabel());
+                if (d < dist[y]) {
+                    dist[y] = d;
+                    open.put(y, d);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** Marks a label shared by several vertices in _IDS. */
+    private static final int AMBIGUOUS = -1;
+
+    /** Number of vertices in my graph. */
+    private final int _n;
+    /** Id of the vertex with each label. */
+    private final HashMap<VLabel, Integer> _ids;
+    /** Weights of shortest paths from each landmark, indexed by landmark
+     *  and then by vertex id. */
+    private final double[][] _from;
+    /** Weights of shortest paths to each landmark, indexed by landmark
+     *  and then by vertex id. */
+    private final double[][] _to;
+}
@@ -0,0 +1,288 @@
+package graph;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** The state of one Traversal.parallelBreadthFirstTraverse.  The fringe
+ *  is expanded a level at a time.  Each level is found either top-down,
+ *  by splitting the previous level among tasks that follow its outgoing
+ *  edges and claim the vertices they reach, or bottom-up, by splitting
+ *  the unreached vertices among tasks that look for an incoming edge from
+ *  the previous level.  Top-down is cheaper while the fringe is small;
+ *  bottom-up while it covers much of the graph, since a vertex stops
+ *  checking its edges as soon as one leads from the fringe.  The choice
+ *  is made for each level by comparing the number of edges each would
+ *  examine.
+ *  @author Brian Truong.
+ */
+class ParallelBreadthFirst<VLabel, ELabel> {
+
+    /** A search of G whose preVisit and visit calls go to CLIENT,
+     *  treating the vertices whose ids are in MARKED as already
+     *  traversed. */
+    ParallelBreadthFirst(Traversal<VLabel, ELabel> client,
+                         Graph<VLabel, ELabel> G, BitSet marked) {
+        _client = client;
+        _graph = G;
+        _n = G.vertexSize();
+        _visited = new AtomicLongArray((_n + 63) >>> 6);
+        for (int v = 0; v < _n; v += 1) {
+            if (marked.get(v)) {
+                _visited.set(v >>> 6, _visited.get(v >>> 6) | (1L << v));
+            } else {
+                _unreachedEdges += G.inDegree(G.getVertex(v));
+            }
+        }
+    }
+
+    /** Traverses from the vertex with id START and returns the ids of the
+     *  vertices whose successors were traversed, level by level, or null
+     *  if the traversal was stopped. */
+    IntList traverse(int start) {
+        IntList order = new IntList();
+        if (!claim(start)) {
+            return order;
+        }
+        Graph<VLabel, ELabel>.Vertex v = _graph.getVertex(start);
+        _unreachedEdges -= _graph.inDegree(v);
+        try {
+            _client.visit(v);
+        } catch (StopException e) {
+            stop(v, null);
+            return null;
+        } catch (RejectException e) {
+            return order;
+        }
+        IntList level = new IntList();
+        level.add(start);
+        boolean bottomUp = false;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        while (level.size() > 0) {
+            long levelEdges = 0;
+            for (int i = 0; i < level.size(); i += 1) {
+                order.add(level.get(i));
+                levelEdges += _graph.outDegree(vertex(level.get(i)));
+            }
+            if (!bottomUp && levelEdges > _unreachedEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && level.size() < _n / BETA) {
+                bottomUp = false;
+            }
+            Step step;
+            if (bottomUp) {
+                _level = new BitSet(_n);
+                for (int i = 0; i < level.size(); i += 1) {
+                    _level.set(level.get(i));
+                }
+                step = new Step(null, 0, _n);
+            } else {
+                step = new Step(level, 0, level.size());
+            }
+            pool.invoke(step);
+            if (_stopped) {
+                return null;
+            }
+            level = step.found();
+            for (int i = 0; i < level.size(); i += 1) {
+                _unreachedEdges -= _graph.inDegree(vertex(level.get(i)));
+            }
+        }
+        return order;
+    }
+
+    /** Sets the bits of MARKED for the ids of all traversed vertices. */
+    void markAll(BitSet marked) {
+        for (int v = 0; v < _n; v += 1) {
+            if (visited(v)) {
+                marked.set(v);
+            }
+        }
+    }
+
+    /** A task that finds the part of the next level reached from some of
+     *  the current one. */
+    private class Step extends RecursiveAction {
+
+        /** A task that follows the outgoing edges of LEVEL.get(k) for
+         *  LO <= K < HI or, if LEVEL is null, checks the incoming edges of
+         *  the unreached vertices with ids LO <= K < HI. */
+        Step(IntList level, int lo, int hi) {
+            _levelList = level;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        /** Returns the ids of the vertices I added to the next level.
+         *  Valid once I have completed. */
+        IntList found() {
+            return _found;
+        }
+
+        @Override
+        protected void compute() {
+            int grain
+                = _levelList == null ? BOTTOM_UP_GRAIN : TOP_DOWN_GRAIN;
+            if (_hi - _lo <= grain) {
+                _found = new IntList();
+                for (int k = _lo; k < _hi && !_stopped; k += 1) {
+                    if (_levelList == null) {
+                        checkIncoming(k);
+                    } else {
+                        followOutgoing(_levelList.get(k));
+                    }
+                }
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                Step left = new Step(_levelList, _lo, mid);
+                Step right = new Step(_levelList, mid, _hi);
+                invokeAll(left, right);
+                _found = left._found;
+                for (int i = 0; i < right._found.size(); i += 1) {
+                    _found.add(right._found.get(i));
+                }
+            }
+        }
+
+        /** Claim and visit each unreached successor of the vertex with
+         *  id V. */
+        private void followOutgoing(int v) {
+            Graph<VLabel, ELabel>.Vertex vx = _graph.getVertex(v);
+            for (Graph<VLabel, ELabel>.Edge e : _graph.outEdges(vx)) {
+                Graph<VLabel, ELabel>.Vertex wx = e.getV(vx);
+                int w = wx.getId();
+                if (visited(w)) {
+                    continue;
+                }
+                try {
+                    _client.preVisit(e, vx);
+                } catch (StopException excp) {
+                    stop(vx, e);
+                    return;
+                } catch (RejectException excp) {
+                    continue;
+                }
+                if (!claim(w)) {
+                    continue;
+                }
+                if (!reach(wx, e)) {
+                    return;
+                }
+            }
+        }
+
+        /** If the vertex with id W is unreached, find an edge to it from
+         *  the current level, if there is one, and visit it. */
+        private void checkIncoming(int w) {
+            if (visited(w)) {
+                return;
+            }
+            Graph<VLabel, ELabel>.Vertex wx = _graph.getVertex(w);
+            for (Graph<VLabel, ELabel>.Edge e : _graph.inEdges(wx)) {
+                Graph<VLabel, ELabel>.Vertex vx = e.getV(wx);
+                if (!_level.get(vx.getId())) {
+                    continue;
+                }
+                try {
+                    _client.preVisit(e, vx);
+                } catch (StopException excp) {
+                    stop(vx, e);
+                    return;
+                } catch (RejectException excp) {
+                    continue;
+                }
+                claim(w);
+                reach(wx, e);
+                return;
+            }
+        }
+
+        /** Visit WX, just reached along E, and add it to the next level
+         *  unless the visit rejects it.  Returns false iff the visit
+         *  stopped the traversal. */
+        private boolean reach(Graph<VLabel, ELabel>.Vertex wx,
+                              Graph<VLabel, ELabel>.Edge e) {
+            try {
+                _client.visit(wx);
+                _found.add(wx.getId());
+            } catch (StopException excp) {
+                stop(wx, e);
+                return false;
+            } catch (RejectException excp) {
+                return true;
+            }
+            return true;
+        }
+
+        /** The current level, when working top-down. */
+        private final IntList _levelList;
+        /** The range of positions or ids I handle. */
+        private final int _lo, _hi;
+        /** The ids I added to the next level. */
+        private IntList _found;
+    }
+
+    /** Returns the vertex with id V. */
+    private Graph<VLabel, ELabel>.Vertex vertex(int v) {
+        return _graph.getVertex(v);
+    }
+
+    /** Returns true iff the vertex with id V has been reached. */
+    private boolean visited(int v) {
+        return (_visited.get(v >>> 6) & (1L << v)) != 0;
+    }
+
+    /** Marks the vertex with id V as reached, returning false iff it
+     *  already was. */
+    private boolean claim(int v) {
+        int word = v >>> 6;
+        long bit = 1L << v;
+        while (true) {
+            long old = _visited.get(word);
+            if ((old & bit) != 0) {
+                return false;
+            }
+            if (_visited.compareAndSet(word, old, old | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /** Ends the traversal, recording V and E as the vertex and edge that
+     *  caused it to stop, unless it has already been stopped. */
+    private synchronized void stop(Graph<VLabel, ELabel>.Vertex v,
+                                   Graph<VLabel, ELabel>.Edge e) {
+        if (!_stopped) {
+            _stopped = true;
+            _client._finalVertex = v;
+            _client._finalEdge = e;
+        }
+    }
+
+    /** Switch to bottom-up once the edges leaving the current level
+     *  outnumber 1/ALPHA of the edges entering unreached vertices. */
+    private static final int ALPHA = 14;
+    /** Switch back to top-down once the current level holds fewer than
+     *  1/BETA of the vertices. */
+    private static final int BETA = 24;
+    /** Number of vertices of a level one top-down task expands itself. */
+    private static final int TOP_DOWN_GRAIN = 256;
+    /** Number of vertex ids one bottom-up task checks itself. */
+    private static final int BOTTOM_UP_GRAIN = 4096;
+
+    /** The traversal whose hooks I call. */
+    private final Traversal<VLabel, ELabel> _client;
+    /** The graph traversed. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** Number of vertices in _GRAPH. */
+    private final int _n;
+    /** Bit v of word v/64 is set iff the vertex with id v is reached. */
+    private final AtomicLongArray _visited;
+    /** Number of edges entering vertices not yet reached. */
+    private long _unreachedEdges;
+    /** The current level, when working bottom-up. */
+    private BitSet _level;
+    /** True once a hook has stopped the traversal. */
+    private volatile boolean _stopped;
+}
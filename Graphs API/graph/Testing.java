@@ -5,6 +5,11 @@ import ucb.junit.textui;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Collections;
+import java.util.function.IntConsumer;
+import java.io.File;
+import java.io.IOException;
 
 /* You MAY add public @Test methods to this class.  You may also add
  * additional public classes containing "Testing" in their name. These
@@ -476,6 +481,38 @@ public class Testing {
         assertEquals("First predecessor of v1 is v2.", v2, next);
     }
 
+    @Test
+    public void forEachNeighborTest() {
+        UndirectedGraph<String, String> g
+            = new UndirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("Q1");
+        Graph<String, String>.Vertex v2 = g.add("Q2");
+        Graph<String, String>.Vertex v3 = g.add("Q3");
+        g.add(v2, v1, "foo");
+        g.add(v3, v2, "bar");
+        final ArrayList<Integer> ids = new ArrayList<Integer>();
+        IntConsumer collect = new IntConsumer() {
+                @Override
+                public void accept(int id) {
+                    ids.add(id);
+                }
+            };
+        g.forEachSuccessor(v2, collect);
+        g.forEachPredecessor(v2, collect);
+        assertEquals(4, ids.size());
+        int k = 0;
+        for (Graph<String, String>.Vertex v : g.successors(v2)) {
+            assertEquals(v.getId(), (int) ids.get(k));
+            k += 1;
+        }
+        for (Graph<String, String>.Vertex v : g.predecessors(v2)) {
+            assertEquals(v, g.getVertex(ids.get(k)));
+            k += 1;
+        }
+        assertEquals(v1, g.getVertex(ids.get(0)));
+        assertEquals(v3, g.getVertex(ids.get(1)));
+    }
+
     @Test
     public void edgesIterationTest() {
         ArrayList<Graph<String, String>.Edge> storage
@@ -576,4 +613,585 @@ public class Testing {
         assertEquals("Same edges different labels", true,
             !v2.getLabel().equals(v1.getLabel()));
     }
+
+    @Test
+    public void vertexIdsAfterRemoval() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("R1");
+        Graph<String, String>.Vertex v2 = g.add("R2");
+        Graph<String, String>.Vertex v3 = g.add("R3");
+        g.add(v1, v3);
+        g.add(v3, v2);
+        g.remove(v1);
+        assertEquals("Removed vertex is not mine.", false, g.contains(v1));
+        assertEquals("Moved vertex is still mine.", true, g.contains(v3));
+        assertEquals(v3, g.getVertex(v3.getId()));
+        assertEquals("Moved vertex kept its edges.", 1, g.outDegree(v3));
+        assertEquals(0, g.inDegree(v3));
+        assertEquals(true, g.add(v3, v2, "again") != null);
+        assertEquals(null, g.add(v1, v2));
+        assertEquals(2, g.outDegree(v3));
+    }
+
+    @Test
+    public void removalKeepsAdjacencyConsistent() {
+        UndirectedGraph<String, String> g
+            = new UndirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("S1");
+        Graph<String, String>.Vertex v2 = g.add("S2");
+        Graph<String, String>.Vertex v3 = g.add("S3");
+        Graph<String, String>.Vertex v4 = g.add("S4");
+        Graph<String, String>.Edge e1 = g.add(v1, v2, "a");
+        Graph<String, String>.Edge e2 = g.add(v1, v2, "b");
+        Graph<String, String>.Edge e3 = g.add(v2, v3, "c");
+        Graph<String, String>.Edge e4 = g.add(v3, v4, "d");
+        Graph<String, String>.Edge e5 = g.add(v4, v4, "e");
+        Graph<String, String>.Edge twin = null;
+        for (Graph<String, String>.Edge e : g.outEdges(v3)) {
+            if (e.getV(v3) == v2) {
+                twin = e;
+            }
+        }
+        g.remove(twin);
+        assertEquals("Removing a twin removes the edge.", 4, g.edgeSize());
+        assertEquals(false, g.contains(v2, v3));
+        assertEquals(2, g.degree(v2));
+        g.remove(v2, v1);
+        assertEquals("Parallel edges removed.", 2, g.edgeSize());
+        assertEquals(0, g.degree(v1));
+        g.remove(v4);
+        assertEquals(0, g.edgeSize());
+        assertEquals(0, g.degree(v3));
+        assertEquals(3, g.vertexSize());
+        int count = 0;
+        for (Graph<String, String>.Edge e : g.edges()) {
+            count += 1;
+        }
+        assertEquals(0, count);
+    }
+
+    @Test
+    public void containsHighDegree() {
+        UndirectedGraph<Integer, String> g
+            = new UndirectedGraph<Integer, String>();
+        Graph<Integer, String>.Vertex hub = g.add(0);
+        ArrayList<Graph<Integer, String>.Vertex> spokes
+            = new ArrayList<Graph<Integer, String>.Vertex>();
+        for (int i = 1; i <= 40; i += 1) {
+            Graph<Integer, String>.Vertex v = g.add(i);
+            spokes.add(v);
+            g.add(hub, v, "spoke" + i);
+        }
+        Graph<Integer, String>.Vertex far = g.add(99);
+        assertEquals(true, g.contains(hub, spokes.get(30)));
+        assertEquals(true, g.contains(spokes.get(30), hub));
+        assertEquals(true, g.contains(hub, spokes.get(30), "spoke31"));
+        assertEquals(false, g.contains(hub, spokes.get(30), "spoke30"));
+        assertEquals(false, g.contains(hub, far));
+        g.remove(hub, spokes.get(30));
+        assertEquals(false, g.contains(hub, spokes.get(30)));
+        assertEquals(false, g.contains(spokes.get(30), hub));
+        g.add(spokes.get(30), hub, null);
+        assertEquals(true, g.contains(hub, spokes.get(30), null));
+        g.remove(spokes.get(0));
+        assertEquals(true, g.contains(hub, spokes.get(1)));
+        assertEquals(false, g.contains(hub, spokes.get(0)));
+    }
+
+    @Test
+    public void testAStarPath() {
+        DirectedGraph<Integer, Integer> g
+            = new DirectedGraph<Integer, Integer>();
+        Graph<Integer, Integer>.Vertex v1 = g.add(10);
+        Graph<Integer, Integer>.Vertex v2 = g.add(5);
+        Graph<Integer, Integer>.Vertex v3 = g.add(4);
+        Graph<Integer, Integer>.Vertex v4 = g.add(88);
+        Graph<Integer, Integer>.Edge e0 = g.add(v1, v2, 1);
+        Graph<Integer, Integer>.Edge e1 = g.add(v2, v3, 1);
+        Graph<Integer, Integer>.Edge e2 = g.add(v1, v3, 5);
+        Graph<Integer, Integer>.Edge e3 = g.add(v3, v4, 2);
+        Graph<Integer, Integer>.Edge e4 = g.add(v2, v4, 7);
+        List<Graph<Integer, Integer>.Edge> path
+            = Graphs.shortestPath(g, v1, v4, Graphs.ZERO_DISTANCER,
+                VWEIGHTER, EWEIGHTER);
+        assertEquals(3, path.size());
+        assertEquals(e0, path.get(0));
+        assertEquals(e1, path.get(1));
+        assertEquals(e3, path.get(2));
+        assertEquals(null, Graphs.shortestPath(g, v4, v1,
+            Graphs.ZERO_DISTANCER, VWEIGHTER, EWEIGHTER));
+    }
+
+    /** A vertex or edge label with a settable weight. */
+    static class Place implements Weightable {
+        /** A label with initial weight W. */
+        Place(double w) {
+            _weight = w;
+        }
+
+        @Override
+        public double weight() {
+            return _weight;
+        }
+
+        @Override
+        public void setWeight(double w) {
+            _weight = w;
+        }
+
+        /** My weight. */
+        private double _weight;
+    }
+
+    @Test
+    public void testAStarWeightable() {
+        DirectedGraph<Place, Place> g = new DirectedGraph<Place, Place>();
+        Graph<Place, Place>.Vertex v1 = g.add(new Place(0));
+        Graph<Place, Place>.Vertex v2 = g.add(new Place(0));
+        Graph<Place, Place>.Vertex v3 = g.add(new Place(0));
+        Graph<Place, Place>.Edge e0 = g.add(v1, v2, new Place(2));
+        Graph<Place, Place>.Edge e1 = g.add(v2, v3, new Place(2));
+        Graph<Place, Place>.Edge e2 = g.add(v1, v3, new Place(5));
+        List<Graph<Place, Place>.Edge> path
+            = Graphs.shortestPath(g, v1, v3, Graphs.ZERO_DISTANCER);
+        assertEquals(2, path.size());
+        assertEquals(e1, path.get(1));
+        assertEquals(4.0, v3.getLabel().weight(), 1e-9);
+    }
+
+    @Test
+    public void testBidirectionalPath() {
+        DirectedGraph<Integer, Integer> g
+            = new DirectedGraph<Integer, Integer>();
+        ArrayList<Graph<Integer, Integer>.Vertex> v
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 6; i += 1) {
+            v.add(g.add(i));
+        }
+        g.add(v.get(0), v.get(1), 2);
+        g.add(v.get(1), v.get(2), 2);
+        g.add(v.get(2), v.get(5), 2);
+        g.add(v.get(0), v.get(3), 1);
+        g.add(v.get(3), v.get(4), 1);
+        g.add(v.get(4), v.get(5), 1);
+        g.add(v.get(4), v.get(5), 3);
+        g.add(v.get(0), v.get(5), 10);
+        List<Graph<Integer, Integer>.Edge> path
+            = Graphs.bidirectionalShortestPath(g, v.get(0), v.get(5),
+                Graphs.ZERO_DISTANCER, VWEIGHTER, EWEIGHTER);
+        assertEquals(3, path.size());
+        assertEquals(v.get(0), path.get(0).getV0());
+        assertEquals(v.get(4), path.get(1).getV1());
+        assertEquals(1, (int) path.get(2).getLabel());
+        assertEquals(null, Graphs.bidirectionalShortestPath(g, v.get(5),
+            v.get(0), Graphs.ZERO_DISTANCER, VWEIGHTER, EWEIGHTER));
+        assertEquals(0, Graphs.bidirectionalShortestPath(g, v.get(2),
+            v.get(2), Graphs.ZERO_DISTANCER, VWEIGHTER, EWEIGHTER).size());
+    }
+
+    @Test
+    public void testContractionHierarchy() {
+        UndirectedGraph<Integer, Integer> g
+            = new UndirectedGraph<Integer, Integer>();
+        ArrayList<Graph<Integer, Integer>.Vertex> v
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 7; i += 1) {
+            v.add(g.add(i));
+        }
+        for (int i = 0; i < 6; i += 1) {
+            g.add(v.get(i), v.get(i + 1), 1);
+        }
+        g.add(v.get(0), v.get(6), 10);
+        g.add(v.get(2), v.get(5), 2);
+        g.add(v.get(2), v.get(5), 4);
+        ContractionHierarchy<Integer, Integer> ch
+            = new ContractionHierarchy<Integer, Integer>(g, EWEIGHTER);
+        assertEquals(5.0, ch.distance(v.get(0), v.get(6)), 1e-9);
+        assertEquals(5.0, ch.distance(v.get(6), v.get(0)), 1e-9);
+        List<Graph<Integer, Integer>.Edge> path
+            = ch.shortestPath(v.get(6), v.get(0));
+        assertEquals(4, path.size());
+        Graph<Integer, Integer>.Vertex at = v.get(6);
+        for (Graph<Integer, Integer>.Edge e : path) {
+            at = e.getV(at);
+        }
+        assertEquals(v.get(0), at);
+        assertEquals(2, (int) path.get(1).getLabel());
+        Graph<Integer, Integer>.Vertex lonely = g.add(7);
+        ch = new ContractionHierarchy<Integer, Integer>(g, EWEIGHTER);
+        assertEquals(null, ch.shortestPath(v.get(0), lonely));
+        assertEquals(0, ch.shortestPath(lonely, lonely).size());
+    }
+
+    @Test
+    public void testLandmarkDistancer() {
+        DirectedGraph<Integer, Integer> g
+            = new DirectedGraph<Integer, Integer>();
+        ArrayList<Graph<Integer, Integer>.Vertex> v
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 6; i += 1) {
+            v.add(g.add(i));
+        }
+        for (int i = 0; i < 4; i += 1) {
+            g.add(v.get(i), v.get(i + 1), i + 1);
+        }
+        g.add(v.get(0), v.get(4), 20);
+        LandmarkDistancer<Integer, Integer> h
+            = new LandmarkDistancer<Integer, Integer>(g, 2, EWEIGHTER);
+        assertEquals(2, h.landmarks());
+        for (int i = 0; i < 5; i += 1) {
+            for (int j = i; j < 5; j += 1) {
+                double d = (j * (j + 1) - i * (i + 1)) / 2;
+                assertTrue(h.dist(i, j) <= d);
+                assertTrue(h.dist(j, i) >= 0.0);
+            }
+        }
+        assertEquals(10.0, h.dist(0, 4), 1e-9);
+        assertEquals(0.0, h.dist(0, 5), 1e-9);
+        assertEquals(0.0, h.dist(0, 99), 1e-9);
+        List<Graph<Integer, Integer>.Edge> path
+            = Graphs.shortestPath(g, v.get(0), v.get(4), h,
+                VWEIGHTER, EWEIGHTER);
+        assertEquals(4, path.size());
+    }
+
+    @Test
+    public void testDistanceMatrix() {
+        DirectedGraph<Integer, Integer> g
+            = new DirectedGraph<Integer, Integer>();
+        ArrayList<Graph<Integer, Integer>.Vertex> v
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 5; i += 1) {
+            v.add(g.add(i));
+        }
+        g.add(v.get(0), v.get(1), 1);
+        g.add(v.get(1), v.get(2), 2);
+        g.add(v.get(0), v.get(2), 5);
+        g.add(v.get(2), v.get(0), 4);
+        g.add(v.get(3), v.get(0), 1);
+        List<Graph<Integer, Integer>.Vertex> sources
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        Collections.addAll(sources, v.get(0), v.get(3), v.get(0), v.get(4));
+        List<Graph<Integer, Integer>.Vertex> targets
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        Collections.addAll(targets, v.get(2), v.get(0), v.get(4));
+        double inf = Double.POSITIVE_INFINITY;
+        double[][] expected = {
+            { 3, 0, inf }, { 4, 1, inf }, { 3, 0, inf }, { inf, inf, 0 }
+        };
+        double[][] matrix = Graphs.distanceMatrix(g, sources, targets,
+            EWEIGHTER);
+        double[][] chMatrix = new ContractionHierarchy<Integer, Integer>(g,
+            EWEIGHTER).distanceMatrix(sources, targets);
+        for (int i = 0; i < expected.length; i += 1) {
+            for (int j = 0; j < expected[i].length; j += 1) {
+                assertEquals(expected[i][j], matrix[i][j], 1e-9);
+                assertEquals(expected[i][j], chMatrix[i][j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testLongUndirectedPath() {
+        UndirectedGraph<Integer, Integer> g
+            = new UndirectedGraph<Integer, Integer>();
+        int n = 100000;
+        ArrayList<Graph<Integer, Integer>.Vertex> v
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        ArrayList<Graph<Integer, Integer>.Edge> e
+            = new ArrayList<Graph<Integer, Integer>.Edge>();
+        for (int i = 0; i < n; i += 1) {
+            v.add(g.add(i));
+        }
+        for (int i = 0; i < n - 1; i += 1) {
+            e.add(g.add(v.get(i), v.get(i + 1), 1));
+        }
+        List<Graph<Integer, Integer>.Edge> path
+            = Graphs.shortestPath(g, v.get(n - 1), v.get(0),
+                Graphs.ZERO_DISTANCER, VWEIGHTER, EWEIGHTER);
+        assertEquals(n - 1, path.size());
+        for (int i = 0; i < n - 1; i += 1) {
+            assertSame(e.get(n - 2 - i), path.get(i));
+        }
+    }
+
+    @Test
+    public void testIntGraph() {
+        int[] tails = { 0, 1, 0, 2, 3, 1 };
+        int[] heads = { 1, 2, 2, 0, 0, 3 };
+        double[] weights = { 1, 2, 5, 4, 1, 7 };
+        IntGraph g = new IntGraph(5, tails, heads, weights);
+        assertEquals(5, g.vertexSize());
+        assertEquals(6, g.edgeSize());
+        assertEquals(2, g.outDegree(1));
+        assertEquals(5, g.outEdge(1, 1));
+        assertEquals(2, g.inDegree(0));
+        assertEquals(4, g.inEdge(0, 1));
+        double inf = Double.POSITIVE_INFINITY;
+        double[] expected = { 0, 1, 3, 8, inf };
+        double[] dist = g.distances(0);
+        for (int v = 0; v < 5; v += 1) {
+            assertEquals(expected[v], dist[v], 1e-9);
+        }
+        int[] path = g.shortestPath(3, 2);
+        assertEquals(3, path.length);
+        assertEquals(4, path[0]);
+        assertEquals(0, path[1]);
+        assertEquals(1, path[2]);
+        assertEquals(0, g.shortestPath(2, 2).length);
+        assertEquals(null, g.shortestPath(0, 4));
+        path = g.bidirectionalShortestPath(3, 2, IntGraph.ZERO);
+        assertEquals(3, path.length);
+        assertEquals(4, path[0]);
+        assertEquals(0, path[1]);
+        assertEquals(1, path[2]);
+        assertEquals(0, g.bidirectionalShortestPath(2, 2, IntGraph.ZERO)
+                     .length);
+        assertEquals(null, g.bidirectionalShortestPath(0, 4, IntGraph.ZERO));
+        IntGraph tree = new IntGraph(4, new int[] { 0, 0, 1 },
+            new int[] { 1, 2, 3 }, new double[] { 1, 1, 1 });
+        int[] bfs = tree.breadthFirstOrder(0);
+        int[] dfs = tree.depthFirstOrder(0);
+        int[] bfsExpected = { 0, 1, 2, 3 };
+        int[] dfsExpected = { 0, 1, 3, 2 };
+        assertEquals(4, bfs.length);
+        assertEquals(4, dfs.length);
+        for (int i = 0; i < 4; i += 1) {
+            assertEquals(bfsExpected[i], bfs[i]);
+            assertEquals(dfsExpected[i], dfs[i]);
+        }
+    }
+
+    @Test
+    public void testFreeze() {
+        UndirectedGraph<Integer, Integer> g
+            = new UndirectedGraph<Integer, Integer>();
+        ArrayList<Graph<Integer, Integer>.Vertex> v
+            = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 4; i += 1) {
+            v.add(g.add(i));
+        }
+        g.add(v.get(0), v.get(1), 1);
+        g.add(v.get(1), v.get(2), 2);
+        g.add(v.get(0), v.get(2), 5);
+        Graph<Integer, Integer> f = g.freeze();
+        assertEquals(4, f.vertexSize());
+        assertEquals(3, f.edgeSize());
+        assertFalse(f.isDirected());
+        Graph<Integer, Integer>.Vertex f0 = f.getVertex(0);
+        Graph<Integer, Integer>.Vertex f2 = f.getVertex(2);
+        assertEquals((Integer) 2, f2.getLabel());
+        assertEquals(2, f.degree(f0));
+        assertTrue(f.contains(f2, f.getVertex(1)));
+        assertFalse(f.contains(f0, f.getVertex(3)));
+        assertTrue(f.contains(f2, f0, 5));
+        List<Graph<Integer, Integer>.Edge> path
+            = Graphs.shortestPath(f, f2, f0, Graphs.ZERO_DISTANCER,
+                VWEIGHTER, EWEIGHTER);
+        assertEquals(2, path.size());
+        assertEquals((Integer) 2, path.get(0).getLabel());
+        assertSame(f.getVertex(1), path.get(0).getV0());
+        assertSame(f0, path.get(1).getV0());
+        assertSame(f, f.freeze());
+        try {
+            f.add(4);
+            fail("frozen graph changed");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(4, f.vertexSize());
+        }
+        g.remove(v.get(1));
+        assertEquals(3, f.edgeSize());
+    }
+
+    @Test
+    public void testIntGraphSaveAndMap() throws IOException {
+        int[] tails = { 0, 1, 0, 2, 3, 1 };
+        int[] heads = { 1, 2, 2, 0, 0, 3 };
+        double[] weights = { 1, 2, 5, 4, 1, 7.5 };
+        IntGraph g = new IntGraph(5, tails, heads, weights);
+        File file = File.createTempFile("intgraph", ".bin");
+        try {
+            g.save(file.getPath());
+            IntGraph m = IntGraph.map(file.getPath());
+            assertEquals(5, m.vertexSize());
+            assertEquals(6, m.edgeSize());
+            for (int e = 0; e < 6; e += 1) {
+                assertEquals(tails[e], m.tail(e));
+                assertEquals(heads[e], m.head(e));
+                assertEquals(weights[e], m.weight(e), 0.0);
+            }
+            assertEquals(5, m.outEdge(1, 1));
+            assertEquals(4, m.inEdge(0, 1));
+            int[] path = m.shortestPath(3, 2);
+            assertEquals(3, path.length);
+            assertEquals(4, path[0]);
+            assertEquals(1, path[2]);
+            assertEquals(8.5, m.distances(0)[3], 1e-9);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLabelIndex() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b1 = g.add("b");
+        assertSame(b1, g.find("b"));
+        g.indexVertices(false);
+        Graph<String, String>.Vertex b2 = g.add(new String("b"));
+        assertSame(b1.getLabel(), b2.getLabel());
+        assertSame(b2, g.find("b"));
+        assertNull(g.find("c"));
+        g.remove(b2);
+        assertSame(b1, g.find("b"));
+        g.remove(b1);
+        assertNull(g.find("b"));
+        g.add("b");
+        try {
+            g.indexVertices(true);
+            g.add("a");
+            fail("duplicate label accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals(2, g.vertexSize());
+            assertSame(a, g.find("a"));
+        }
+        g.internEdgeLabels();
+        Graph<String, String>.Edge e1 = g.add(a, a, "loop");
+        Graph<String, String>.Edge e2 = g.add(a, a, new String("loop"));
+        assertSame(e1.getLabel(), e2.getLabel());
+    }
+
+    @Test
+    public void testEdgeColumns() {
+        EdgeColumns c = new EdgeColumns(1);
+        DirectedGraph<Integer, Integer> g
+            = new DirectedGraph<Integer, Integer>();
+        for (int v = 0; v < 3; v += 1) {
+            g.add(v);
+        }
+        g.add(g.getVertex(0), g.getVertex(1), c.add(4.0, (byte) 1, 7));
+        g.add(g.getVertex(1), g.getVertex(2), c.add(1.5, (byte) 0, 7));
+        g.add(g.getVertex(0), g.getVertex(2), c.add(6.0, (byte) 1, 2));
+        assertEquals(3, c.size());
+        assertEquals(0, c.direction(1));
+        assertEquals(2, c.name(2));
+        Weighter<Integer> w = c.weighter();
+        assertEquals(1.5, w.weight(1), 0.0);
+        List<Graph<Integer, Integer>.Edge> path =
+            Graphs.shortestPath(g, g.getVertex(0), g.getVertex(2),
+                                Graphs.ZERO_DISTANCER, VWEIGHTER, w);
+        assertEquals(2, path.size());
+        w.setWeight(2, 5.0);
+        assertEquals(5.0, c.weight(2), 0.0);
+    }
+
+    @Test
+    public void testGraphBuilder() {
+        for (int directed = 0; directed < 2; directed += 1) {
+            GraphBuilder<Integer, Integer> b
+                = new GraphBuilder<Integer, Integer>();
+            Graph<Integer, Integer> g = directed == 1
+                ? new DirectedGraph<Integer, Integer>()
+                : new UndirectedGraph<Integer, Integer>();
+            for (int i = 0; i < 5; i += 1) {
+                assertEquals(i, b.addVertex(i));
+                g.add(i);
+            }
+            for (int k = 0; k < 60; k += 1) {
+                int u = (7 * k) % 5, v = k % 3 == 0 ? u : (k * k) % 5;
+                b.addEdge(u, v, k);
+                g.add(g.getVertex(u), g.getVertex(v), k);
+            }
+            Graph<Integer, Integer> h = directed == 1 ? b.buildDirected()
+                : b.buildUndirected();
+            assertEquals(g.isDirected(), h.isDirected());
+            assertEquals(60, h.edgeSize());
+            for (int v = 0; v < 5; v += 1) {
+                Graph<Integer, Integer>.Vertex gv = g.getVertex(v);
+                Graph<Integer, Integer>.Vertex hv = h.getVertex(v);
+                assertEquals(gv.getLabel(), hv.getLabel());
+                assertEquals(g.outDegree(gv), h.outDegree(hv));
+                assertEquals(g.inDegree(gv), h.inDegree(hv));
+                for (int k = 0; k < g.outDegree(gv); k += 1) {
+                    assertEquals(g.outEdge(gv, k).getLabel(),
+                                 h.outEdge(hv, k).getLabel());
+                }
+                for (int w = 0; w < 5; w += 1) {
+                    assertEquals(g.contains(gv, g.getVertex(w)),
+                                 h.contains(hv, h.getVertex(w)));
+                }
+            }
+            h.remove(h.getVertex(0));
+            assertEquals(4, h.vertexSize());
+        }
+        try {
+            new GraphBuilder<Integer, Integer>().addEdge(0, 0, 1);
+            fail("edge between missing vertices accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("no such vertex", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testVertexOrder() {
+        int[] path = { 3, 6, 0, 7, 2, 5, 1, 4 };
+        Graph<Integer, Integer> g = new UndirectedGraph<Integer, Integer>();
+        for (int v = 0; v < path.length; v += 1) {
+            g.add(10 * v);
+        }
+        for (int i = 1; i < path.length; i += 1) {
+            g.add(g.getVertex(path[i - 1]), g.getVertex(path[i]), i);
+        }
+        int[] rcm = VertexOrder.reverseCuthillMcKee(g);
+        int[] bfs = VertexOrder.breadthFirst(g);
+        assertEquals(0, bfs[0]);
+        for (int i = 1; i < path.length; i += 1) {
+            assertEquals(1, Math.abs(rcm[path[i]] - rcm[path[i - 1]]));
+            assertTrue(Math.abs(bfs[path[i]] - bfs[path[i - 1]]) <= 2);
+        }
+        Graph<Integer, Integer> f = g.freeze(rcm);
+        for (int v = 0; v < path.length; v += 1) {
+            Graph<Integer, Integer>.Vertex gv = g.getVertex(v);
+            Graph<Integer, Integer>.Vertex fv = f.getVertex(rcm[v]);
+            assertEquals(gv.getLabel(), fv.getLabel());
+            assertEquals(g.outDegree(gv), f.outDegree(fv));
+            for (int k = 0; k < g.outDegree(gv); k += 1) {
+                assertEquals(g.outEdge(gv, k).getLabel(),
+                             f.outEdge(fv, k).getLabel());
+                assertSame(f.getVertex(rcm[g.outEdge(gv, k).getV(gv)
+                                            .getId()]),
+                           f.outEdge(fv, k).getV(fv));
+            }
+        }
+        assertArrayEquals(new int[] { 3, 1, 0, 2 },
+                          VertexOrder.hilbert(new double[] { 1, 0, 0, 1 },
+                                              new double[] { 0, 1, 0, 1 }));
+        IntGraph h = new IntGraph(4, new int[] { 0, 1, 2, 0 },
+                                  new int[] { 1, 2, 3, 3 },
+                                  new double[] { 1.0, 2.0, 3.0, 7.0 });
+        int[] ids = { 2, 0, 3, 1 };
+        IntGraph r = h.renumber(ids);
+        double[] d0 = h.distances(0), d1 = r.distances(ids[0]);
+        for (int e = 0; e < h.edgeSize(); e += 1) {
+            assertEquals(ids[h.tail(e)], r.tail(e));
+            assertEquals(ids[h.head(e)], r.head(e));
+            assertEquals(h.weight(e), r.weight(e), 0.0);
+        }
+        for (int v = 0; v < 4; v += 1) {
+            assertEquals(d0[v], d1[ids[v]], 0.0);
+        }
+        try {
+            h.renumber(new int[] { 0, 1, 1, 2 });
+            fail("repeated id accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("not a renumbering", e.getMessage());
+        }
+        try {
+            h.renumber(new int[] { 0, 1, 2 });
+            fail("short renumbering accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("not a renumbering", e.getMessage());
+        }
+    }
 }
@@ -1,10 +1,10 @@
 package graph;
 
 import java.util.Comparator;
-import java.util.TreeSet;
-import java.util.Stack;
-import java.util.LinkedList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 
 /** Implements a generalized traversal of a graph.  At any given time,
  *  there is a particular set of untraversed vertices---the "fringe."
@@ -34,68 +34,184 @@ import java.util.ArrayList;
  *  RejectException to prevent a vertex from being added to the
  *  fringe, and the visit method may throw a RejectException to
  *  prevent its successors from being added to the fringe.
+ *
+ *  The record of which vertices have been traversed belongs to the
+ *  Traversal object rather than to the graph, so separate Traversal
+ *  objects may traverse the same (unchanging) graph at the same time.
+ *  Each traversal starts afresh, except those made with
+ *  continueTraversing.
  *  @author Brian Truong.
  */
 public class Traversal<VLabel, ELabel> {
 
     /** Perform a traversal of G over all vertices reachable from V.
      *  ORDER determines the ordering in which the fringe of
-     *  untraversed vertices is visited.  The effect of specifying an
-     *  ORDER whose results change as a result of modifications made during the
-     *  traversal is undefined. */
+     *  untraversed vertices is visited; among vertices that ORDER ranks
+     *  equal, the one added to the fringe most recently is visited first.
+     *  A vertex is in the fringe at most once.  When a vertex already in
+     *  the fringe is reached again, its place in the fringe is found
+     *  afresh, so ORDER may depend on label values that preVisit changes
+     *  for the vertex being reached (lowering a tentative distance, say).
+     *  The effect of other modifications made during the traversal that
+     *  change the results of ORDER is undefined. */
     public void traverse(Graph<VLabel, ELabel> G,
                          Graph<VLabel, ELabel>.Vertex v,
                          final Comparator<VLabel> order) {
+        start(G, "general");
         _comparator = order;
-        Comparator<Graph<VLabel, ELabel>.Vertex> vcomparator
-            = new Comparator<Graph<VLabel, ELabel>.Vertex>() {
-                    @Override
-                    public int compare(Graph<VLabel, ELabel>.Vertex v1,
-                        Graph<VLabel, ELabel>.Vertex v2) {
-                        int result = order.compare(v1.getLabel(),
-                            v2.getLabel());
-                        if (result != 0) {
-                            return result;
-                        } else {
-                            return -1;
-                        }
-                    }
-                };
-        TreeSet<Graph<VLabel, ELabel>.Vertex> fringe
-            = new TreeSet<Graph<VLabel, ELabel>.Vertex>(vcomparator);
-        _graph = G;
-        _traversal = "general";
+        generalTraverse(v);
+    }
+
+    /** Perform the general traversal of my graph from V, skipping
+     *  vertices already traversed. */
+    private void generalTraverse(Graph<VLabel, ELabel>.Vertex v) {
+        if (marked(v)) {
+            return;
+        }
+        Fringe fringe = new Fringe(_comparator, _graph.vertexSize());
         fringe.add(v);
         while (!fringe.isEmpty()) {
             try {
-                _finalVertex = fringe.pollFirst();
+                _finalVertex = fringe.poll();
                 visit(_finalVertex);
-                _finalVertex.setMarked();
+                mark(_finalVertex);
             } catch (StopException e) {
                 return;
             } catch (RejectException e) {
                 continue;
             }
-            if (_graph.outDegree(_finalVertex) > 0) {
-                for (Graph<VLabel, ELabel>.Edge etmp
-                    : _graph.outEdges(_finalVertex)) {
-                    try {
-                        if (!etmp.getV(_finalVertex).getMarked()) {
-                            _finalEdge = etmp;
-                            preVisit(etmp, _finalVertex);
-                            fringe.add(etmp.getV1());
-                        }
-                    } catch (StopException e) {
-                        return;
-                    } catch (RejectException e) {
-                        System.out.println("Edge is not traversed.");
+            for (Graph<VLabel, ELabel>.Edge etmp
+                     : _graph.outEdges(_finalVertex)) {
+                Graph<VLabel, ELabel>.Vertex vtmp = etmp.getV(_finalVertex);
+                try {
+                    if (!marked(vtmp)) {
+                        _finalEdge = etmp;
+                        preVisit(etmp, _finalVertex);
+                        fringe.add(vtmp);
                     }
+                } catch (StopException e) {
+                    return;
+                } catch (RejectException e) {
+                    System.out.println("Edge is not traversed.");
                 }
             }
-            fringe.remove(_finalVertex);
         }
     }
 
+    /** The fringe of a general traversal: a binary heap of vertices
+     *  ordered by a comparator on their labels, with ties going to the
+     *  vertex added last.  It records the heap position of each vertex
+     *  by id, so that it holds each vertex at most once and can restore
+     *  the heap order around a vertex that is added again. */
+    private class Fringe {
+
+        /** An empty fringe for a graph of N vertices, ordered by ORDER. */
+        Fringe(Comparator<VLabel> order, int n) {
+            _order = order;
+            _heap = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+            _pos = new int[n];
+            _added = new long[n];
+            Arrays.fill(_pos, -1);
+        }
+
+        /** Returns true iff I am empty. */
+        boolean isEmpty() {
+            return _heap.isEmpty();
+        }
+
+        /** Adds V to me, or, if V is already in me, moves it to where its
+         *  label now places it. */
+        void add(Graph<VLabel, ELabel>.Vertex v) {
+            int id = v.getId();
+            _count += 1;
+            _added[id] = _count;
+            if (_pos[id] < 0) {
+                _heap.add(v);
+                _pos[id] = _heap.size() - 1;
+            }
+            siftDown(siftUp(_pos[id]));
+        }
+
+        /** Removes and returns my first vertex.  Assumes I am not empty. */
+        Graph<VLabel, ELabel>.Vertex poll() {
+            Graph<VLabel, ELabel>.Vertex result = _heap.get(0);
+            Graph<VLabel, ELabel>.Vertex last
+                = _heap.remove(_heap.size() - 1);
+            _pos[result.getId()] = -1;
+            if (last != result) {
+                place(last, 0);
+                siftDown(0);
+            }
+            return result;
+        }
+
+        /** Returns true iff vertex V1 comes before vertex V2. */
+        private boolean before(Graph<VLabel, ELabel>.Vertex v1,
+                               Graph<VLabel, ELabel>.Vertex v2) {
+            int c = _order.compare(v1.getLabel(), v2.getLabel());
+            if (c != 0) {
+                return c < 0;
+            }
+            return _added[v1.getId()] > _added[v2.getId()];
+        }
+
+        /** Moves the vertex at heap position K up while it comes before
+         *  its parent, and returns its final position. */
+        private int siftUp(int k) {
+            Graph<VLabel, ELabel>.Vertex v = _heap.get(k);
+            while (k > 0) {
+                int parent = (k - 1) / 2;
+                if (!before(v, _heap.get(parent))) {
+                    break;
+                }
+                place(_heap.get(parent), k);
+                k = parent;
+            }
+            place(v, k);
+            return k;
+        }
+
+        /** Moves the vertex at heap position K down while one of its
+         *  children comes before it. */
+        private void siftDown(int k) {
+            Graph<VLabel, ELabel>.Vertex v = _heap.get(k);
+            int size = _heap.size();
+            while (true) {
+                int child = 2 * k + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size
+                    && before(_heap.get(child + 1), _heap.get(child))) {
+                    child += 1;
+                }
+                if (!before(_heap.get(child), v)) {
+                    break;
+                }
+                place(_heap.get(child), k);
+                k = child;
+            }
+            place(v, k);
+        }
+
+        /** Stores V at heap position K. */
+        private void place(Graph<VLabel, ELabel>.Vertex v, int k) {
+            _heap.set(k, v);
+            _pos[v.getId()] = k;
+        }
+
+        /** The ordering on labels. */
+        private final Comparator<VLabel> _order;
+        /** My vertices in heap order. */
+        private final ArrayList<Graph<VLabel, ELabel>.Vertex> _heap;
+        /** Heap position of each vertex id, or -1 if it is not in me. */
+        private final int[] _pos;
+        /** When each vertex id was last added, as a value of _COUNT. */
+        private final long[] _added;
+        /** Number of calls to add so far. */
+        private long _count;
+    }
+
     /** Performs a depth-first traversal of G over all vertices
      *  reachable from V.  That is, the fringe is a sequence and
      *  vertices are added to it or removed from it at one end in
@@ -104,56 +220,85 @@ public class Traversal<VLabel, ELabel> {
      *  the postVisit method on it. */
     public void depthFirstTraverse(Graph<VLabel, ELabel> G,
                                    Graph<VLabel, ELabel>.Vertex v) {
-        Stack<Graph<VLabel, ELabel>.Vertex> fringe
-            = new Stack<Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> postvisited
+        start(G, "depth");
+        depthFirst(v);
+    }
+
+    /** Perform the depth-first traversal of my graph from V, skipping
+     *  vertices already traversed.  The traversal keeps a stack of frames,
+     *  one for each vertex whose successors are being traversed, holding
+     *  the vertex and the number of its outgoing edges not yet followed.
+     *  Edges are followed from the last to the first, so that successors
+     *  are traversed in the order that pushing them all onto a stack and
+     *  then popping them would give.  Each vertex and edge is dealt with
+     *  a constant number of times. */
+    private void depthFirst(Graph<VLabel, ELabel>.Vertex v) {
+        if (marked(v)) {
+            return;
+        }
+        ArrayList<Graph<VLabel, ELabel>.Vertex> frames
             = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        _graph = G;
-        _traversal = "depth";
-        fringe.push(v);
-        while (!fringe.empty()) {
-            _finalVertex = fringe.pop();
-            if (!_finalVertex.getMarked()) {
-                try {
-                    _finalVertex.setMarked();
-                    visit(_finalVertex);
-                } catch (StopException e) {
-                    return;
-                } catch (RejectException e) {
-                    continue;
-                }
-                fringe.push(_finalVertex);
-                for (Iteration<Graph<VLabel, ELabel>.Edge> iter
-                        = _graph.outEdges(_finalVertex);
-                    iter.hasNext();) {
-                    Graph<VLabel, ELabel>.Edge etmp = iter.next();
-                    Graph<VLabel, ELabel>.Vertex vtmp
-                        = etmp.getV(_finalVertex);
-                    try {
-                        if (!vtmp.getMarked()) {
-                            _finalEdge = etmp;
-                            preVisit(etmp, etmp.getV0());
-                            fringe.push(vtmp);
-                        }
-                    } catch (StopException e) {
-                        return;
-                    } catch (RejectException e) {
-                        System.out.println("Edge is not traversed.");
-                    }
-                }
-            } else {
+        IntList remaining = new IntList();
+        _finalVertex = v;
+        if (!enter(v, frames, remaining)) {
+            return;
+        }
+        while (!frames.isEmpty()) {
+            int top = frames.size() - 1;
+            _finalVertex = frames.get(top);
+            int k = remaining.get(top);
+            if (k == 0) {
+                frames.remove(top);
+                remaining.pop();
                 try {
-                    if (!postvisited.contains(_finalVertex)) {
-                        postVisit(_finalVertex);
-                        postvisited.add(_finalVertex);
-                    }
+                    postVisit(_finalVertex);
                 } catch (StopException e) {
                     return;
                 } catch (RejectException e) {
                     continue;
                 }
+                continue;
             }
+            k -= 1;
+            remaining.set(top, k);
+            Graph<VLabel, ELabel>.Edge etmp = _graph.outEdge(_finalVertex, k);
+            Graph<VLabel, ELabel>.Vertex vtmp = etmp.getV(_finalVertex);
+            if (marked(vtmp)) {
+                continue;
+            }
+            try {
+                _finalEdge = etmp;
+                preVisit(etmp, _finalVertex);
+            } catch (StopException e) {
+                return;
+            } catch (RejectException e) {
+                System.out.println("Edge is not traversed.");
+                continue;
+            }
+            _finalVertex = vtmp;
+            if (!enter(vtmp, frames, remaining)) {
+                return;
+            }
+        }
+    }
+
+    /** Mark and visit V and, unless the visit rejects it, push a frame
+     *  for V onto FRAMES and REMAINING.  Returns false iff the visit
+     *  stops the traversal. */
+    private boolean enter(Graph<VLabel, ELabel>.Vertex v,
+                          ArrayList<Graph<VLabel, ELabel>.Vertex> frames,
+                          IntList remaining) {
+        try {
+            mark(v);
+            visit(v);
+        } catch (StopException e) {
+            return false;
+        } catch (RejectException e) {
+            return true;
         }
+        frames.add(v);
+        remaining.add(_graph.outDegree(v));
+        return true;
     }
 
     /** Performs a breadth-first traversal of G over all vertices
@@ -164,49 +309,109 @@ public class Traversal<VLabel, ELabel> {
      *  the postVisit method on it. */
     public void breadthFirstTraverse(Graph<VLabel, ELabel> G,
                                      Graph<VLabel, ELabel>.Vertex v) {
-        LinkedList<Graph<VLabel, ELabel>.Vertex> fringe
-            = new LinkedList<Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> storage
+        start(G, "breadth");
+        breadthFirst(v);
+    }
+
+    /** Perform the breadth-first traversal of my graph from V, skipping
+     *  vertices already traversed.  Each vertex joins the fringe once
+     *  and each of its edges is examined once, so this takes time
+     *  proportional to the number of vertices and edges reached. */
+    private void breadthFirst(Graph<VLabel, ELabel>.Vertex v) {
+        if (marked(v)) {
+            return;
+        }
+        ArrayList<Graph<VLabel, ELabel>.Vertex> fringe
             = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        _graph = G;
-        _traversal = "breadth";
-        fringe.add(v);
-        visit(v);
-        v.setMarked();
-        while (fringe.size() != 0) {
-            _finalVertex = fringe.removeFirst();
-            storage.add(_finalVertex);
-            for (Graph<VLabel, ELabel>.Vertex elem : storage) {
-                Iteration<Graph<VLabel, ELabel>.Edge> iter
-                    = _graph.outEdges(elem);
-                while (iter.hasNext()) {
-                    Graph<VLabel, ELabel>.Edge etmp = iter.next();
-                    Graph<VLabel, ELabel>.Vertex vtmp1 = etmp.getV0();
-                    Graph<VLabel, ELabel>.Vertex vtmp2 = etmp.getV1();
-                    try {
-                        if (!vtmp2.getMarked()) {
-                            _finalEdge = etmp;
-                            preVisit(etmp, vtmp1);
-                            vtmp2.setMarked();
-                            visit(vtmp2);
-                            fringe.add(vtmp2);
-                        }
-                    } catch (StopException e) {
-                        return;
-                    } catch (RejectException e) {
-                        System.out.println("Edge is not traversed.");
+        _finalVertex = v;
+        try {
+            mark(v);
+            visit(v);
+            fringe.add(v);
+        } catch (StopException e) {
+            return;
+        } catch (RejectException e) {
+            return;
+        }
+        for (int head = 0; head < fringe.size(); head += 1) {
+            _finalVertex = fringe.get(head);
+            for (Graph<VLabel, ELabel>.Edge etmp
+                     : _graph.outEdges(_finalVertex)) {
+                Graph<VLabel, ELabel>.Vertex vtmp = etmp.getV(_finalVertex);
+                try {
+                    if (!marked(vtmp)) {
+                        _finalEdge = etmp;
+                        preVisit(etmp, _finalVertex);
+                        mark(vtmp);
+                        visit(vtmp);
+                        fringe.add(vtmp);
                     }
+                } catch (StopException e) {
+                    return;
+                } catch (RejectException e) {
+                    System.out.println("Edge is not traversed.");
                 }
             }
         }
-        try {
-            for (Graph<VLabel, ELabel>.Vertex item : storage) {
+        postVisitAll(fringe);
+    }
+
+    /** Performs a breadth-first traversal of G over all vertices
+     *  reachable from V, like breadthFirstTraverse, but expands each
+     *  level of the fringe (the vertices at the same distance in edges
+     *  from V) in parallel.  When the fringe grows to cover much of the
+     *  graph, each level is instead found by checking the incoming edges
+     *  of every vertex not yet reached for one that leaves the previous
+     *  level, which examines far fewer edges on large, well-connected
+     *  graphs.
+     *
+     *  The preVisit and visit methods may be called from several threads
+     *  at once, and in no particular order within a level, so they must
+     *  be safe to call concurrently.  An edge whose preVisit throws
+     *  RejectException is skipped without comment; the vertex it leads
+     *  to may still be reached by another edge.  Within a level, preVisit
+     *  may be called for several edges into the same vertex, which is
+     *  then reached by whichever of them is accepted first.  The postVisit
+     *  calls are made from the calling thread, level by level, once the
+     *  traversal of all vertices is complete.  After a StopException, the
+     *  traversal ends once the calls already in progress return, and
+     *  finalVertex and finalEdge report the call that threw it. */
+    public void parallelBreadthFirstTraverse(Graph<VLabel, ELabel> G,
+                                             Graph<VLabel, ELabel>.Vertex v) {
+        start(G, "parallel breadth");
+        parallelBreadthFirst(v);
+    }
+
+    /** Perform the parallel breadth-first traversal of my graph from V,
+     *  skipping vertices already traversed. */
+    private void parallelBreadthFirst(Graph<VLabel, ELabel>.Vertex v) {
+        ParallelBreadthFirst<VLabel, ELabel> search
+            = new ParallelBreadthFirst<VLabel, ELabel>(this, _graph,
+                                                       _marked);
+        IntList levels = search.traverse(v.getId());
+        search.markAll(_marked);
+        if (levels != null) {
+            ArrayList<Graph<VLabel, ELabel>.Vertex> order
+                = new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+            for (int i = 0; i < levels.size(); i += 1) {
+                order.add(_graph.getVertex(levels.get(i)));
+            }
+            postVisitAll(order);
+        }
+    }
+
+    /** Call postVisit on each vertex in VERTICES in order, unless one of
+     *  these calls throws a StopException. */
+    private void postVisitAll(List<Graph<VLabel, ELabel>.Vertex> vertices) {
+        for (Graph<VLabel, ELabel>.Vertex item : vertices) {
+            try {
                 postVisit(item);
+            } catch (StopException e) {
+                _finalVertex = item;
+                return;
+            } catch (RejectException e) {
+                continue;
             }
-        } catch (StopException e) {
-            return;
-        } catch (RejectException e) {
-            System.out.println("RejectException encountered.");
         }
     }
 
@@ -215,14 +420,34 @@ public class Traversal<VLabel, ELabel> {
      *  vertices that have been traversed previously. */
     public void continueTraversing(Graph<VLabel, ELabel>.Vertex v) {
         if (_traversal.equals("general")) {
-            traverse(_graph, v, _comparator);
+            generalTraverse(v);
         } else if (_traversal.equals("depth")) {
-            depthFirstTraverse(_graph, v);
+            depthFirst(v);
         } else if (_traversal.equals("breadth")) {
-            breadthFirstTraverse(_graph, v);
+            breadthFirst(v);
+        } else if (_traversal.equals("parallel breadth")) {
+            parallelBreadthFirst(v);
         }
     }
 
+    /** Begin a new traversal of kind TRAVERSAL over G, in which no
+     *  vertex has yet been traversed. */
+    private void start(Graph<VLabel, ELabel> G, String traversal) {
+        _graph = G;
+        _traversal = traversal;
+        _marked = new BitSet(G.vertexSize());
+    }
+
+    /** Returns true iff V has been traversed. */
+    private boolean marked(Graph<VLabel, ELabel>.Vertex v) {
+        return _marked.get(v.getId());
+    }
+
+    /** Record that V has been traversed. */
+    private void mark(Graph<VLabel, ELabel>.Vertex v) {
+        _marked.set(v.getId());
+    }
+
     /** If the traversal ends prematurely, returns the Vertex argument to
      *  preVisit, visit, or postVisit that caused a Visit routine to
      *  return false.  Otherwise, returns null. */
@@ -276,4 +501,6 @@ public class Traversal<VLabel, ELabel> {
     private Comparator<VLabel> _comparator;
     /** The last type of traversal performed. */
     private String _traversal = "";
+    /** The ids of the vertices traversed so far. */
+    private BitSet _marked;
 }
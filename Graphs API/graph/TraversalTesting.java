@@ -3,6 +3,12 @@ package graph;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
 /** Tests for traversals.
  *  @author Brian Truong.
  */
@@ -62,4 +68,280 @@ public class TraversalTesting {
         System.out.println("Begin breadthfirst traversal.");
         client.breadthFirstTraverse(g, v3);
     }
+
+    /** Counts the vertices a traversal visits. */
+    public class Counter<VLabel, ELabel>
+        extends Traversal<VLabel, ELabel> {
+
+        /** Visit Extension for vertex V. */
+        protected void visit(Graph<VLabel, ELabel>.Vertex v) {
+            count += 1;
+        }
+
+        /** Number of vertices visited. */
+        int count;
+    }
+
+    /** Checks that traversals do not share visited vertices, except when
+     *  continued. */
+    @Test
+    public void separateTraversals() {
+        DirectedGraph<String, String> g
+            = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("input1");
+        Graph<String, String>.Vertex v2 = g.add("input2");
+        Graph<String, String>.Vertex v3 = g.add("input3");
+        g.add(v3, v2);
+        g.add(v1, v3);
+        Counter<String, String> first = new Counter<String, String>();
+        Counter<String, String> second = new Counter<String, String>();
+        first.depthFirstTraverse(g, v1);
+        second.depthFirstTraverse(g, v1);
+        assertEquals(3, first.count);
+        assertEquals(3, second.count);
+        first.depthFirstTraverse(g, v3);
+        assertEquals(5, first.count);
+        first.continueTraversing(v1);
+        assertEquals(6, first.count);
+        second.breadthFirstTraverse(g, v3);
+        second.continueTraversing(v1);
+        assertEquals(6, second.count);
+    }
+
+    /** Records the depth at which a breadth-first traversal reaches each
+     *  vertex.  Each vertex is reached once, so the array entries are
+     *  written by one thread each. */
+    public class Depths extends Traversal<Integer, String> {
+
+        /** Depths for a graph with N vertices. */
+        Depths(int n) {
+            depth = new int[n];
+            Arrays.fill(depth, -1);
+        }
+
+        /** Previsit Extension for graph E and vertex V0. */
+        protected void preVisit(Graph<Integer, String>.Edge e,
+                                Graph<Integer, String>.Vertex v0) {
+            depth[e.getV(v0).getLabel()] = depth[v0.getLabel()] + 1;
+        }
+
+        /** PostVisit extension for vertex V. */
+        protected void postVisit(Graph<Integer, String>.Vertex v) {
+            postvisits += 1;
+        }
+
+        /** Depth of each vertex, by label, or -1 if not reached. */
+        int[] depth;
+        /** Number of postVisit calls. */
+        int postvisits;
+    }
+
+    /** Checks that the parallel breadth-first traversal reaches the same
+     *  vertices at the same depths as the sequential one. */
+    @Test
+    public void parallelBreadthFirst() {
+        DirectedGraph<Integer, String> g
+            = new DirectedGraph<Integer, String>();
+        int n = 5000;
+        ArrayList<Graph<Integer, String>.Vertex> v
+            = new ArrayList<Graph<Integer, String>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            v.add(g.add(i));
+        }
+        Random random = new Random(61);
+        for (int i = 0; i < 4 * n; i += 1) {
+            g.add(v.get(random.nextInt(n)), v.get(random.nextInt(n)));
+        }
+        Depths serial = new Depths(n);
+        Depths parallel = new Depths(n);
+        serial.depth[0] = parallel.depth[0] = 0;
+        serial.breadthFirstTraverse(g, v.get(0));
+        parallel.parallelBreadthFirstTraverse(g, v.get(0));
+        assertArrayEquals(serial.depth, parallel.depth);
+        assertEquals(serial.postvisits, parallel.postvisits);
+        assertTrue(serial.postvisits > n / 2);
+    }
+
+    /** Records the depth at which a breadth-first traversal reaches each
+     *  vertex, rejecting every edge into a vertex with an even label. */
+    public class OddDepths extends Depths {
+
+        /** Depths for a graph with N vertices. */
+        OddDepths(int n) {
+            super(n);
+        }
+
+        /** Previsit Extension for graph E and vertex V0. */
+        protected void preVisit(Graph<Integer, String>.Edge e,
+                                Graph<Integer, String>.Vertex v0) {
+            if (e.getV(v0).getLabel() % 2 == 0) {
+                throw new RejectException();
+            }
+            super.preVisit(e, v0);
+        }
+    }
+
+    /** Checks that the parallel breadth-first traversal skips rejected
+     *  edges without printing anything, top-down and bottom-up. */
+    @Test
+    public void parallelBreadthFirstReject() {
+        DirectedGraph<Integer, String> g
+            = new DirectedGraph<Integer, String>();
+        int n = 5000;
+        ArrayList<Graph<Integer, String>.Vertex> v
+            = new ArrayList<Graph<Integer, String>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            v.add(g.add(i));
+        }
+        Random random = new Random(62);
+        for (int i = 0; i < 8 * n; i += 1) {
+            g.add(v.get(random.nextInt(n)), v.get(random.nextInt(n)));
+        }
+        OddDepths serial = new OddDepths(n);
+        OddDepths parallel = new OddDepths(n);
+        serial.depth[0] = parallel.depth[0] = 0;
+        serial.breadthFirstTraverse(g, v.get(0));
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try {
+            parallel.parallelBreadthFirstTraverse(g, v.get(0));
+        } finally {
+            System.setOut(out);
+        }
+        assertEquals(0, printed.size());
+        assertArrayEquals(serial.depth, parallel.depth);
+        for (int i = 2; i < n; i += 2) {
+            assertEquals(-1, parallel.depth[i]);
+        }
+        assertTrue(parallel.postvisits > n / 4);
+    }
+
+    /** Records the depth at which a breadth-first traversal reaches each
+     *  vertex, rejecting every edge that leaves a vertex with a nonzero
+     *  even label. */
+    public class OddSources extends Depths {
+
+        /** Depths for a graph with N vertices. */
+        OddSources(int n) {
+            super(n);
+        }
+
+        /** Previsit Extension for graph E and vertex V0. */
+        protected void preVisit(Graph<Integer, String>.Edge e,
+                                Graph<Integer, String>.Vertex v0) {
+            if (v0.getLabel() != 0 && v0.getLabel() % 2 == 0) {
+                throw new RejectException();
+            }
+            super.preVisit(e, v0);
+        }
+    }
+
+    /** Checks that an edge rejected by the parallel breadth-first
+     *  traversal does not keep other edges at the same level from
+     *  reaching the vertex it leads to.  Each vertex at depth 2 has
+     *  rejected edges from three even-labeled vertices at depth 1 and an
+     *  accepted one from an odd-labeled vertex, and a large unreachable
+     *  part of the graph keeps the traversal top-down. */
+    @Test
+    public void parallelBreadthFirstRejectBySource() {
+        DirectedGraph<Integer, String> g
+            = new DirectedGraph<Integer, String>();
+        int k = 2000, block = 4000, n = 1 + 3 * k + block;
+        ArrayList<Graph<Integer, String>.Vertex> v
+            = new ArrayList<Graph<Integer, String>.Vertex>();
+        for (int i = 0; i < n; i += 1) {
+            v.add(g.add(i));
+        }
+        for (int i = 0; i < k; i += 1) {
+            g.add(v.get(0), v.get(2 * i + 2));
+        }
+        for (int i = 0; i < k; i += 1) {
+            g.add(v.get(0), v.get(2 * i + 1));
+        }
+        int w0 = 2 * k + 1;
+        for (int i = 0; i < k; i += 1) {
+            for (int j = 0; j < 3; j += 1) {
+                g.add(v.get(2 * i + 2), v.get(w0 + (i + j) % k));
+            }
+            g.add(v.get(2 * i + 1), v.get(w0 + i));
+        }
+        Random random = new Random(63);
+        int b0 = w0 + k;
+        for (int i = 0; i < 40 * block; i += 1) {
+            g.add(v.get(b0 + random.nextInt(block)),
+                  v.get(b0 + random.nextInt(block)));
+        }
+        OddSources serial = new OddSources(n);
+        serial.depth[0] = 0;
+        serial.breadthFirstTraverse(g, v.get(0));
+        for (int i = 0; i < k; i += 1) {
+            assertEquals(2, serial.depth[w0 + i]);
+        }
+        for (int trial = 0; trial < 20; trial += 1) {
+            OddSources parallel = new OddSources(n);
+            parallel.depth[0] = 0;
+            parallel.parallelBreadthFirstTraverse(g, v.get(0));
+            assertArrayEquals(serial.depth, parallel.depth);
+            assertEquals(serial.postvisits, parallel.postvisits);
+        }
+    }
+
+    /** Records the order in which a traversal visits vertices. */
+    public class Recorder extends Traversal<Integer, String> {
+
+        /** Visit Extension for vertex V. */
+        protected void visit(Graph<Integer, String>.Vertex v) {
+            visited.add(v.getLabel());
+        }
+
+        /** Labels of the vertices visited, in order. */
+        ArrayList<Integer> visited = new ArrayList<Integer>();
+    }
+
+    /** Checks that a general traversal visits each vertex once, smallest
+     *  label first among those on the fringe. */
+    @Test
+    public void generalTraverse() {
+        DirectedGraph<Integer, String> g
+            = new DirectedGraph<Integer, String>();
+        ArrayList<Graph<Integer, String>.Vertex> v
+            = new ArrayList<Graph<Integer, String>.Vertex>();
+        for (int i = 0; i < 6; i += 1) {
+            v.add(g.add(i));
+        }
+        for (int i = 0; i < 6; i += 1) {
+            for (int j = 0; j < 6; j += 1) {
+                if (i != j) {
+                    g.add(v.get(i), v.get(j));
+                    g.add(v.get(i), v.get(j));
+                }
+            }
+        }
+        Recorder client = new Recorder();
+        client.traverse(g, v.get(3), Graph.<Integer>naturalOrder());
+        assertEquals(Arrays.asList(3, 0, 1, 2, 4, 5), client.visited);
+    }
+
+    /** Checks that a depth-first traversal follows a long chain to its
+     *  end and postvisits every vertex on it. */
+    @Test
+    public void depthFirstLongChain() {
+        DirectedGraph<Integer, String> g
+            = new DirectedGraph<Integer, String>();
+        int n = 200000;
+        Graph<Integer, String>.Vertex prev = g.add(0);
+        Graph<Integer, String>.Vertex first = prev;
+        for (int i = 1; i < n; i += 1) {
+            Graph<Integer, String>.Vertex next = g.add(i);
+            g.add(prev, next);
+            g.add(next, first);
+            prev = next;
+        }
+        Depths client = new Depths(n);
+        client.depth[0] = 0;
+        client.depthFirstTraverse(g, first);
+        assertEquals(n, client.postvisits);
+        assertEquals(n - 1, client.depth[n - 1]);
+    }
 }
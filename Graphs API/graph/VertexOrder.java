@@ -0,0 +1,299 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** Renumberings of the vertices of a graph that give vertices close to
+ *  one another in the graph numbers close to one another, for use with
+ *  Graph.freeze(int[]) and IntGraph.renumber.  A search over a graph
+ *  held in arrays indexed by vertex visits the entries of each vertex's
+ *  neighbors in turn, and these are more likely to share cache lines
+ *  and pages when their numbers are close.  Each method returns an
+ *  array IDS, a permutation of 0 .. n-1, in which IDS[v] is the new
+ *  number of vertex v.  Edges are followed in both directions.
+ *  @author Brian Truong.
+ */
+public final class VertexOrder {
+
+    /** Returns a renumbering of the vertices of G in breadth-first order.
+     *  Vertex 0 is first, followed by the vertices one edge from it, and
+     *  so on; each later vertex not yet reached starts a new search. */
+    public static <VLabel, ELabel> int[] breadthFirst(
+        Graph<VLabel, ELabel> G) {
+        int[][] adjacency = adjacency(G);
+        return order(adjacency[0], adjacency[1], false);
+    }
+
+    /** Returns a renumbering of the vertices of G in breadth-first order,
+     *  as for breadthFirst(Graph). */
+    public static int[] breadthFirst(IntGraph G) {
+        int[][] adjacency = adjacency(G);
+        return order(adjacency[0], adjacency[1], false);
+    }
+
+    /** Returns a renumbering of the vertices of G in reverse
+     *  Cuthill-McKee order.  Each connected piece of G is searched
+     *  breadth-first from a vertex of least degree, taking the neighbors
+     *  of each vertex in increasing order of degree, and the resulting
+     *  order is then reversed.  This tends to make the largest
+     *  difference between the numbers of adjacent vertices small. */
+    public static <VLabel, ELabel> int[] reverseCuthillMcKee(
+        Graph<VLabel, ELabel> G) {
+        int[][] adjacency = adjacency(G);
+        return order(adjacency[0], adjacency[1], true);
+    }
+
+    /** Returns a renumbering of the vertices of G in reverse
+     *  Cuthill-McKee order, as for reverseCuthillMcKee(Graph). */
+    public static int[] reverseCuthillMcKee(IntGraph G) {
+        int[][] adjacency = adjacency(G);
+        return order(adjacency[0], adjacency[1], true);
+    }
+
+    /** Returns a renumbering of vertices 0 .. XS.length-1, where vertex v
+     *  lies at (XS[v], YS[v]), in the order of a Hilbert curve through
+     *  the smallest square holding them all.  Vertices near each other
+     *  in the plane then tend to have nearby numbers, which suits graphs,
+     *  such as road maps, whose edges are mostly short.  Vertices in the
+     *  same cell of a HILBERT_SIDE by HILBERT_SIDE grid over the square
+     *  keep their relative order, as do vertices with infinite or NaN
+     *  coordinates, which are placed as if at a corner of the square.
+     *  XS and YS must have the same length. */
+    public static int[] hilbert(double[] xs, double[] ys) {
+        int n = xs.length;
+        if (ys.length != n) {
+            throw new IllegalArgumentException(
+                "coordinate arrays differ in length");
+        }
+        double x0, y0, x1, y1;
+        x0 = y0 = Double.POSITIVE_INFINITY;
+        x1 = y1 = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < n; v += 1) {
+            if (isFinite(xs[v]) && isFinite(ys[v])) {
+                x0 = Math.min(x0, xs[v]);
+                x1 = Math.max(x1, xs[v]);
+                y0 = Math.min(y0, ys[v]);
+                y1 = Math.max(y1, ys[v]);
+            }
+        }
+        double side = Math.max(x1 - x0, y1 - y0);
+        double scale = side > 0.0 ? HILBERT_SIDE / side : 0.0;
+        long[] keys = new long[n];
+        for (int v = 0; v < n; v += 1) {
+            int cx = 0, cy = 0;
+            if (isFinite(xs[v]) && isFinite(ys[v])) {
+                cx = cell((xs[v] - x0) * scale);
+                cy = cell((ys[v] - y0) * scale);
+            }
+            keys[v] = ((long) hilbertIndex(cx, cy) << 32) | v;
+        }
+        Arrays.sort(keys);
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            ids[(int) keys[i]] = i;
+        }
+        return ids;
+    }
+
+    /** Returns the inverse of the renumbering IDS: the array whose
+     *  element IDS[v] is v, for each v.  Throws IllegalArgumentException
+     *  if IDS is not a permutation of 0 .. IDS.length-1. */
+    public static int[] inverse(int[] ids) {
+        int n = ids.length;
+        int[] result = new int[n];
+        Arrays.fill(result, -1);
+        for (int v = 0; v < n; v += 1) {
+            if (ids[v] < 0 || ids[v] >= n || result[ids[v]] != -1) {
+                throw new IllegalArgumentException("not a renumbering");
+            }
+            result[ids[v]] = v;
+        }
+        return result;
+    }
+
+    /** Throws IllegalArgumentException unless IDS is a permutation of
+     *  0 .. N-1. */
+    static void checkPermutation(int[] ids, int n) {
+        if (ids.length != n) {
+            throw new IllegalArgumentException("not a renumbering");
+        }
+        BitSet seen = new BitSet(n);
+        for (int v = 0; v < n; v += 1) {
+            if (ids[v] < 0 || ids[v] >= n || seen.get(ids[v])) {
+                throw new IllegalArgumentException("not a renumbering");
+            }
+            seen.set(ids[v]);
+        }
+    }
+
+    /** Returns the vertex ids adjacent to each vertex of G, in either
+     *  direction, as the arrays {START, ENDS}: the neighbors of vertex v
+     *  are ENDS[START[v]] .. ENDS[START[v+1]-1]. */
+    private static <VLabel, ELabel> int[][] adjacency(
+        Graph<VLabel, ELabel> G) {
+        int n = G.vertexSize();
+        boolean both = G.isDirected();
+        int[] start = new int[n + 1];
+        for (int v = 0; v < n; v += 1) {
+            Graph<VLabel, ELabel>.Vertex vx = G.getVertex(v);
+            start[v + 1] = start[v] + G.outDegree(vx)
+                + (both ? G.inDegree(vx) : 0);
+        }
+        int[] ends = new int[start[n]];
+        int i = 0;
+        for (int v = 0; v < n; v += 1) {
+            Graph<VLabel, ELabel>.Vertex vx = G.getVertex(v);
+            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(vx)) {
+                ends[i] = e.getV(vx).getId();
+                i += 1;
+            }
+            if (both) {
+                for (Graph<VLabel, ELabel>.Edge e : G.inEdges(vx)) {
+                    ends[i] = e.getV(vx).getId();
+                    i += 1;
+                }
+            }
+        }
+        return new int[][] { start, ends };
+    }
+
+    /** Returns the vertices adjacent to each vertex of G, in either
+     *  direction, in the form adjacency(Graph) uses. */
+    private static int[][] adjacency(IntGraph G) {
+        int n = G.vertexSize();
+        int[] start = new int[n + 1];
+        for (int v = 0; v < n; v += 1) {
+            start[v + 1] = start[v] + G.outDegree(v) + G.inDegree(v);
+        }
+        int[] ends = new int[start[n]];
+        int i = 0;
+        for (int v = 0; v < n; v += 1) {
+            for (int k = 0; k < G.outDegree(v); k += 1) {
+                ends[i] = G.head(G.outEdge(v, k));
+                i += 1;
+            }
+            for (int k = 0; k < G.inDegree(v); k += 1) {
+                ends[i] = G.tail(G.inEdge(v, k));
+                i += 1;
+            }
+        }
+        return new int[][] { start, ends };
+    }
+
+    /** Returns the renumbering that numbers vertices in the order a
+     *  breadth-first search of the adjacency START and ENDS (as returned
+     *  by adjacency) reaches them.  If CUTHILLMCKEE, each search starts
+     *  from an unreached vertex of least degree, the neighbors of each
+     *  vertex are taken in increasing order of degree (and then of
+     *  number), and the order is reversed.  Otherwise, searches start
+     *  from unreached vertices in increasing order and neighbors are
+     *  taken in the order given. */
+    private static int[] order(int[] start, int[] ends,
+                               boolean cuthillMcKee) {
+        int n = start.length - 1;
+        int[] ids = new int[n];
+        Arrays.fill(ids, -1);
+        int[] queue = new int[n];
+        int[] roots = cuthillMcKee ? byDegree(start) : null;
+        long[] keys = cuthillMcKee ? new long[n] : null;
+        int head, tail;
+        head = tail = 0;
+        for (int r = 0; r < n; r += 1) {
+            int root = roots == null ? r : roots[r];
+            if (ids[root] != -1) {
+                continue;
+            }
+            ids[root] = tail;
+            queue[tail] = root;
+            tail += 1;
+            for (; head < tail; head += 1) {
+                int x = queue[head], first = tail;
+                for (int i = start[x]; i < start[x + 1]; i += 1) {
+                    int y = ends[i];
+                    if (ids[y] == -1) {
+                        ids[y] = tail;
+                        queue[tail] = y;
+                        tail += 1;
+                    }
+                }
+                if (keys != null && tail - first > 1) {
+                    for (int i = first; i < tail; i += 1) {
+                        int y = queue[i];
+                        keys[i] = ((long) (start[y + 1] - start[y]) << 32)
+                            | y;
+                    }
+                    Arrays.sort(keys, first, tail);
+                    for (int i = first; i < tail; i += 1) {
+                        queue[i] = (int) keys[i];
+                        ids[queue[i]] = i;
+                    }
+                }
+            }
+        }
+        if (cuthillMcKee) {
+            for (int v = 0; v < n; v += 1) {
+                ids[v] = n - 1 - ids[v];
+            }
+        }
+        return ids;
+    }
+
+    /** Returns the vertices of the adjacency whose START array (as
+     *  returned by adjacency) is given, in increasing order of degree,
+     *  and in increasing order within each degree. */
+    private static int[] byDegree(int[] start) {
+        int n = start.length - 1;
+        int maxDegree = 0;
+        for (int v = 0; v < n; v += 1) {
+            maxDegree = Math.max(maxDegree, start[v + 1] - start[v]);
+        }
+        int[] next = new int[maxDegree + 2];
+        for (int v = 0; v < n; v += 1) {
+            next[start[v + 1] - start[v] + 1] += 1;
+        }
+        for (int d = 0; d <= maxDegree; d += 1) {
+            next[d + 1] += next[d];
+        }
+        int[] result = new int[n];
+        for (int v = 0; v < n; v += 1) {
+            int d = start[v + 1] - start[v];
+            result[next[d]] = v;
+            next[d] += 1;
+        }
+        return result;
+    }
+
+    /** Returns the position of cell (X, Y) along a Hilbert curve through
+     *  a HILBERT_SIDE by HILBERT_SIDE grid of cells, starting at (0, 0).
+     *  Assumes 0 <= X, Y < HILBERT_SIDE. */
+    private static int hilbertIndex(int x, int y) {
+        int d = 0;
+        for (int s = HILBERT_SIDE / 2; s > 0; s /= 2) {
+            int rx = (x & s) != 0 ? 1 : 0, ry = (y & s) != 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_SIDE - 1 - x;
+                    y = HILBERT_SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /** Returns the grid cell holding the scaled coordinate X. */
+    private static int cell(double x) {
+        return Math.max(0, Math.min(HILBERT_SIDE - 1, (int) x));
+    }
+
+    /** Returns true iff X is neither infinite nor NaN. */
+    private static boolean isFinite(double x) {
+        return !Double.isInfinite(x) && !Double.isNaN(x);
+    }
+
+    /** The number of cells along each side of the grid hilbert uses. */
+    static final int HILBERT_SIDE = 1 << 15;
+}
@@ -82,9 +82,14 @@ public final class Main {
         if (alltargets.size() == 0) {
             alltargets.add(firsttarget);
         }
-        for (String s : alltargets) {
+        for (int i = 0; i < alltargets.size(); i += 1) {
+            String s = alltargets.get(i);
             traversal.checkValidity(s);
-            traversal.depthFirstTraverse(graph, targetvertex.get(s));
+            if (i == 0) {
+                traversal.depthFirstTraverse(graph, graph.find(s));
+            } else {
+                traversal.continueTraversing(graph.find(s));
+            }
         }
     }
 
@@ -166,24 +171,30 @@ public final class Main {
     }
 
     /** Takes in GRAPH and creates all the vertices and edges in the graph
-     *  with the information processed from makefilename. */
+     *  with the information processed from makefilename.  GRAPH indexes
+     *  its vertices by name, so each target or dependency becomes one
+     *  vertex. */
     private static void setupGraph(DirectedGraph<String, String> graph) {
+        graph.indexVertices(true);
         for (String s : targetlist) {
-            if (!targetvertex.containsKey(s)) {
-                targetvertex.put(s, graph.add(s));
-            }
+            Graph<String, String>.Vertex v1 = vertex(graph, s);
             for (String d : targettodependents.get(s)) {
-                if (!targetvertex.keySet().contains(d)) {
-                    Graph<String, String>.Vertex v2 = graph.add(d);
-                    graph.add(targetvertex.get(s), v2);
-                    targetvertex.put(d, v2);
-                } else {
-                    graph.add(targetvertex.get(s), targetvertex.get(d));
-                }
+                graph.add(v1, vertex(graph, d));
             }
         }
     }
 
+    /** Returns the vertex of GRAPH named NAME, adding it if there is
+     *  none. */
+    private static Graph<String, String>.Vertex vertex(
+        DirectedGraph<String, String> graph, String name) {
+        Graph<String, String>.Vertex result = graph.find(name);
+        if (result == null) {
+            result = graph.add(name);
+        }
+        return result;
+    }
+
     /** Returns true iff WORD is a valid word for this client, which
      *  means it does not contain any of the characters specified
      *  in the specs. */
@@ -271,10 +282,6 @@ public final class Main {
     private static ArrayList<String> targetlist = new ArrayList<String>();
     /** Arraylist of commands set lines to a target. */
     private static ArrayList<String> commandset = new ArrayList<String>();
-    /** Map of target as the key and the vertex relative to that target
-     *  as the value. */
-    private static HashMap<String, Graph<String, String>.Vertex> targetvertex
-        = new HashMap<String, Graph<String, String>.Vertex>();
     /** Map of target name to the command of the target that prints
      *  when executed (built). */
     private static HashMap<String, ArrayList<String>> targettocommands
@@ -0,0 +1,4 @@
+java -ea trip.Main -l -m trip-tests/travel05 <<EOF
+Berkeley, C4b, C3a, Santa_Cruz, Berkeley
+EOF
+
@@ -0,0 +1,42 @@
+java -ea trip.Main -p -m trip-tests/explore02 <<EOF
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+I95-87, East_Harlem, Troy
+EOF
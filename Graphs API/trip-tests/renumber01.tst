@@ -0,0 +1,7 @@
+bin=$(mktemp) && java -ea trip.MapCompiler -r hilbert trip-tests/explore02 $bin && java -ea trip.Main -m $bin <<EOF
+ITS-87, Fort_Lee, Troy
+Fort_Lee, East_Harlem, Troy, Fishkill
+I23-9W, Mechanicsville, Troy, Port_Morris
+I23-9W, Port_Morris, I87-202, Battery_Park
+EOF
+status=$?; rm -f $bin; exit $status
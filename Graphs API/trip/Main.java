@@ -6,16 +6,24 @@ import graph.DirectedGraph;
 import graph.Weighting;
 import graph.Weighter;
 import graph.Distancer;
+import graph.LandmarkDistancer;
+import graph.ContractionHierarchy;
+import graph.IntGraph;
+import graph.EdgeColumns;
+import graph.GraphBuilder;
 
 import java.util.Scanner;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Collections;
+import java.util.List;
+import java.util.Formatter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 /** Initial class for the 'trip' program.
  *  @author Brian Truong.
@@ -24,10 +32,18 @@ public final class Main {
 
     /** Entry point for the CS61B trip program.  ARGS may contain options
      *  and targets:
-     *      [ -m MAP ] [ -o OUT ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] [ -c | -l ] [ -p ] [ REQUEST ]
      *  where MAP (default Map) contains the map data, OUT (default standard
      *  output) takes the result, and REQUEST (default standard input) contains
-     *  the locations along the requested trip.
+     *  the locations along the requested trip.  MAP may be in text form
+     *  or in the binary form trip.MapCompiler produces, which loads
+     *  faster.  With -c, the map is preprocessed into a contraction
+     *  hierarchy before routing, which pays off when there are many
+     *  requests.  With -l, routes are searched
+     *  using distances to a few landmark locations, rather than straight
+     *  lines, to estimate remaining distance.  With -p, several requests
+     *  are routed at once on all available processors; the trips are
+     *  still printed in the order requested.
      */
     public static void main(String... args) {
         String mapFileName;
@@ -53,6 +69,12 @@ public final class Main {
                 } else {
                     outFileName = args[a];
                 }
+            } else if (args[a].equals("-c")) {
+                contract = true;
+            } else if (args[a].equals("-p")) {
+                parallel = true;
+            } else if (args[a].equals("-l")) {
+                landmarks = true;
             } else if (args[a].startsWith("-")) {
                 usage();
             } else {
@@ -106,180 +128,300 @@ public final class Main {
      */
     private static void trip(String mapFileName) {
         try {
-            Scanner input = new Scanner(new FileInputStream(mapFileName));
-            DirectedGraph<String, String> d
-                = new DirectedGraph<String, String>();
-            while (input.hasNextLine()) {
-                String line = (input.nextLine()).trim();
-                if (!line.equals("")) {
-                    processLine(line, d);
-                }
-            }
-            for (String s : requests) {
-                String[] line = s.trim().split("\\,*\\s+");
-                System.out.printf("From %s:%n%n", line[0]);
-                counter = 0;
-                performTrip(line, d);
-            }
-            input.close();
+            roadmap = RoadMap.read(mapFileName);
         } catch (FileNotFoundException e) {
             System.err.println("nope");
             System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        DirectedGraph<Integer, Integer> d = null;
+        if (contract || landmarks) {
+            d = buildGraph();
+        }
+        if (contract) {
+            hierarchy = new ContractionHierarchy<Integer, Integer>(d,
+                EWEIGHTER);
+        } else if (landmarks) {
+            distancer = new LandmarkDistancer<Integer, Integer>(d,
+                LANDMARKS, EWEIGHTER);
+        }
+        if (parallel) {
+            parallelTrips(d);
+        } else {
+            Trip trip = new Trip(d);
+            for (String s : requests) {
+                System.out.print(trip.route(s));
+            }
         }
     }
 
-    /** Process a line of INPUT from the mapFileName. Adds edges and
-     *  vertices to the graph D depending on whether or not the input is
-     *  a line for road or location. */
-    private static void processLine(String input,
-        DirectedGraph<String, String> d) {
-        String[] current = input.split("\\s+");
-        String vlabel = current[1];
-        try {
-            if (("L").equals(current[0])) {
-                vertexoflabel.put(vlabel, d.add(vlabel));
-                double x = Double.parseDouble(current[2]);
-                double y = Double.parseDouble(current[3]);
-                Double[] location = new Double[2];
-                location[0] = x;
-                location[1] = y;
-                coordinates.put(vlabel, location);
-            } else if (("R").equals(current[0])) {
-                String elabel = makeElabel(current[2], current[1], current[5],
-                    current[3]);
-                Graph<String, String>.Edge e1
-                    = d.add(vertexoflabel.get(current[1]),
-                        vertexoflabel.get(current[5]), elabel);
-                edgeoflabel.put(elabel, e1);
-                d.add(vertexoflabel.get(current[5]),
-                    vertexoflabel.get(current[1]), elabel);
-                edgeweights.put(elabel, Double.parseDouble(current[3]));
-                edgetodirection.put(e1, current[4]);
+    /** Returns ROADMAP as a graph whose vertices are labeled with their
+     *  location numbers and whose edges are labeled with their arc
+     *  numbers, and fills ARCS with the attributes of the arcs. */
+    private static DirectedGraph<Integer, Integer> buildGraph() {
+        IntGraph network = roadmap.network();
+        GraphBuilder<Integer, Integer> builder
+            = new GraphBuilder<Integer, Integer>();
+        arcs = new EdgeColumns(network.edgeSize());
+        for (int v = 0; v < network.vertexSize(); v += 1) {
+            builder.addVertex(v);
+        }
+        for (int arc = 0; arc < network.edgeSize(); arc += 1) {
+            builder.addEdge(network.tail(arc), network.head(arc), arc);
+            arcs.add(network.weight(arc),
+                     (byte) (roadmap.forward(arc) ? 1 : 0),
+                     roadmap.roadNumber(arc));
+        }
+        return builder.buildDirected();
+    }
+
+    /** Print the trips for all requests to the standard output, in order,
+     *  finding the routes for several requests at once in graph D.  Each
+     *  worker thread uses a Trip of its own. */
+    private static void parallelTrips(final DirectedGraph<Integer, Integer> d) {
+        ThreadLocal<Trip> trips = new ThreadLocal<Trip>() {
+                @Override
+                protected Trip initialValue() {
+                    return new Trip(d);
+                }
+            };
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (int start = 0; start < requests.size(); start += CHUNK) {
+            int end = Math.min(requests.size(), start + CHUNK);
+            String[] results = new String[end - start];
+            pool.invoke(new TripBatch(trips, start, end, start, results));
+            for (String result : results) {
+                System.out.print(result);
             }
-        } catch (NumberFormatException e) {
-            System.err.println("Error in input line.");
-            System.exit(1);
         }
     }
 
-    /** Takes the INPUT for each line of request and finds the optimal
-     *  and shortest path for each location to next in graph D. */
-    private static void performTrip(String[] input,
-                    DirectedGraph<String, String> d) {
-        ArrayList<String> locations = new ArrayList<String>();
-        Collections.addAll(locations, input);
-        String prev = locations.remove(0);
-        while (locations.size() > 0) {
-            String curr = locations.remove(0);
-            ArrayList<Graph<String, String>.Edge> shortroute
-                = (ArrayList<Graph<String, String>.Edge>)
-                Graphs.shortestPath(d, vertexoflabel.get(prev),
-                vertexoflabel.get(curr), TRIPDISTANCE, VWEIGHTER, EWEIGHTER);
-            directions(shortroute, curr);
-            prev = curr;
+    /** A fork-join task that routes a range of requests. */
+    private static class TripBatch extends RecursiveAction {
+
+        /** A task that stores the trip for each request K, LO <= K < HI,
+         *  in RESULTS[K - OFFSET], using the Trip TRIPS supplies for the
+         *  current thread. */
+        TripBatch(ThreadLocal<Trip> trips, int lo, int hi, int offset,
+                  String[] results) {
+            _trips = trips;
+            _lo = lo;
+            _hi = hi;
+            _offset = offset;
+            _results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= BATCH) {
+                Trip trip = _trips.get();
+                for (int k = _lo; k < _hi; k += 1) {
+                    _results[k - _offset] = trip.route(requests.get(k));
+                }
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new TripBatch(_trips, _lo, mid, _offset, _results),
+                          new TripBatch(_trips, mid, _hi, _offset, _results));
+            }
         }
+
+        /** Supplies the Trip for the current thread. */
+        private final ThreadLocal<Trip> _trips;
+        /** The range of requests I route. */
+        private final int _lo, _hi;
+        /** Index in _RESULTS of the trip for request 0. */
+        private final int _offset;
+        /** Receives the trips. */
+        private final String[] _results;
     }
 
-    /** Main controller that takes in an arraylist of edges ROADS that contains
-     *  all the optimal roads that are used in order to form the shortest
-     *  path to the given DESTINATION. Also combines similar direction
-     *  i.e travel US6 5 miles NS and US6 2 miles SN equates to
-     *  US6 3 miles NS. The condensed instructions are printed. */
-    private static void directions(ArrayList<Graph<String, String>.Edge> roads,
-                String destination) {
-        while (roads.size() > 0) {
-            String roadname = (roads.get(0)).getLabel();
-            String[] roadelem = (roadname.trim()).split("\\s+");
-            String roaddirection = directioner(
-                edgetodirection.get(edgeoflabel.get(roadname)));
-            if (!edgetodirection.containsKey(roads.get(0))) {
-                roaddirection = reverse(roaddirection);
+    /** The state needed to route one request and format its directions.
+     *  A Trip may be reused for any number of requests, one at a time. */
+    private static class Trip {
+
+        /** A Trip that finds routes in ROADMAP, searching graph D, if
+         *  not null, rather than its network. */
+        Trip(DirectedGraph<Integer, Integer> d) {
+            _graph = d;
+            _vertexWeights = new double[roadmap.size()];
+        }
+
+        /** Returns the printed trip for REQUEST, a line listing the
+         *  locations to visit in order. */
+        String route(String request) {
+            String[] input = request.trim().split("\\,*\\s+");
+            _text.setLength(0);
+            _out.format("From %s:%n%n", input[0]);
+            counter = 0;
+            performTrip(input);
+            return _text.toString();
+        }
+
+        /** Takes the INPUT for each line of request and finds the optimal
+         *  and shortest path for each location to next in my graph. */
+        private void performTrip(String[] input) {
+            for (int k = 1; k < input.length; k += 1) {
+                int prev = roadmap.id(input[k - 1]);
+                int curr = roadmap.id(input[k]);
+                int[] shortroute;
+                if (hierarchy != null) {
+                    shortroute = arcs(hierarchy.shortestPath(
+                        _graph.getVertex(prev), _graph.getVertex(curr)));
+                } else if (_graph != null) {
+                    shortroute = arcs(Graphs.bidirectionalShortestPath(
+                        _graph, _graph.getVertex(prev),
+                        _graph.getVertex(curr), distancer, vweighter,
+                        EWEIGHTER));
+                } else {
+                    shortroute = roadmap.network()
+                        .bidirectionalShortestPath(prev, curr, STRAIGHT);
+                }
+                directions(shortroute, input[k]);
             }
-            if (currentroad.equals("") && currentdirection.equals("")) {
-                currentroad = roadelem[0];
-                currentdirection = roaddirection;
+        }
+
+        /** Returns the arc numbers labeling the edges of ROUTE, in order,
+         *  or null if ROUTE is null. */
+        private int[] arcs(List<Graph<Integer, Integer>.Edge> route) {
+            if (route == null) {
+                return null;
             }
-            if (roadelem[0].equals(currentroad)
-                    && !currentdirection.equals("")
-                    && alongPath(roaddirection, currentdirection)) {
-                if (currentdirection.equals("south")
-                    || currentdirection.equals("north")) {
-                    if (roaddirection.equals("south")) {
-                        totalmiles -= edgeweights.get(roadname);
+            int[] result = new int[route.size()];
+            for (int i = 0; i < result.length; i += 1) {
+                result[i] = route.get(i).getLabel();
+            }
+            return result;
+        }
+
+        /** Main controller that takes in an array ROUTE of the arcs that
+         *  form the shortest path to the given DESTINATION, in order.
+         *  Also combines similar direction i.e travel US6 5 miles NS and
+         *  US6 2 miles SN equates to US6 3 miles NS. The condensed
+         *  instructions are printed. */
+        private void directions(int[] route, String destination) {
+            int k = 0;
+            while (k < route.length) {
+                int arc = route[k];
+                String roadname = roadmap.road(arc);
+                String roaddirection = directioner(roadmap.direction(arc));
+                if (!roadmap.forward(arc)) {
+                    roaddirection = reverse(roaddirection);
+                }
+                if (currentroad.equals("") && currentdirection.equals("")) {
+                    currentroad = roadname;
+                    currentdirection = roaddirection;
+                }
+                if (roadname.equals(currentroad)
+                        && !currentdirection.equals("")
+                        && alongPath(roaddirection, currentdirection)) {
+                    if (currentdirection.equals("south")
+                        || currentdirection.equals("north")) {
+                        if (roaddirection.equals("south")) {
+                            totalmiles -= roadmap.length(arc);
+                        } else {
+                            totalmiles += roadmap.length(arc);
+                        }
                     } else {
-                        totalmiles += edgeweights.get(roadname);
+                        if (roaddirection.equals("west")) {
+                            totalmiles -= roadmap.length(arc);
+                        } else {
+                            totalmiles += roadmap.length(arc);
+                        }
                     }
-                } else {
-                    if (roaddirection.equals("west")) {
-                        totalmiles -= edgeweights.get(roadname);
-                    } else {
-                        totalmiles += edgeweights.get(roadname);
+                    k += 1;
+                    if (k == route.length) {
+                        printGoalRoad(destination);
                     }
+                } else {
+                    printRoad();
                 }
-                roads.remove(0);
-                if (roads.size() == 0) {
-                    printGoalRoad(destination);
-                }
-            } else {
-                printRoad();
             }
         }
-    }
 
-    /** Helper function to directions that calculates, formats and
-     *  prints the net travel mileage (with direction) on a particular road. */
-    private static void printRoad() {
-        counter += 1;
-        if (currentdirection.equals("south")
-                || currentdirection.equals("north")) {
-            if (totalmiles > 0.0) {
-                currentdirection = "north";
-            } else if (totalmiles < 0.0) {
-                currentdirection = "south";
-                totalmiles = Math.abs(totalmiles);
-            }
-        } else if (currentdirection.equals("west")
-                || currentdirection.equals("east")) {
-            if (totalmiles > 0.0) {
-                currentdirection = "east";
-            } else if (totalmiles < 0.0) {
-                currentdirection = "west";
-                totalmiles = Math.abs(totalmiles);
+        /** Helper function to directions that calculates, formats and
+         *  prints the net travel mileage (with direction) on a particular
+         *  road. */
+        private void printRoad() {
+            counter += 1;
+            netDirection();
+            _out.format("%d. Take %s %s for %.1f miles.%n",
+                counter, currentroad, currentdirection, totalmiles);
+            totalmiles = 0.0;
+            currentroad = "";
+            currentdirection = "";
+        }
+
+        /** Unique version of printRoad that is called when DESTINATION
+         *  has been reached. Formats and prints the destination arrival
+         *  line. */
+        private void printGoalRoad(String destination) {
+            counter += 1;
+            netDirection();
+            _out.format("%d. Take %s %s for %.1f miles to %s.%n",
+                counter, currentroad, currentdirection, totalmiles,
+                destination);
+            totalmiles = 0.0;
+            currentroad = "";
+            currentdirection = "";
+        }
+
+        /** Sets currentdirection to the way the net mileage on the current
+         *  road heads, and makes totalmiles non-negative. */
+        private void netDirection() {
+            if (currentdirection.equals("south")
+                    || currentdirection.equals("north")) {
+                if (totalmiles > 0.0) {
+                    currentdirection = "north";
+                } else if (totalmiles < 0.0) {
+                    currentdirection = "south";
+                    totalmiles = Math.abs(totalmiles);
+                }
+            } else if (currentdirection.equals("west")
+                    || currentdirection.equals("east")) {
+                if (totalmiles > 0.0) {
+                    currentdirection = "east";
+                } else if (totalmiles < 0.0) {
+                    currentdirection = "west";
+                    totalmiles = Math.abs(totalmiles);
+                }
             }
         }
-        System.out.printf("%d. Take %s %s for %.1f miles.%n",
-            counter, currentroad, currentdirection, totalmiles);
-        totalmiles = 0.0;
-        currentroad = "";
-        currentdirection = "";
-    }
 
-    /** Unique version of printRoad that is called when DESTINATION
-     *  has been reached. Formats and prints the destination arrival line. */
-    private static void printGoalRoad(String destination) {
-        counter += 1;
-        if (currentdirection.equals("south")
-                || currentdirection.equals("north")) {
-            if (totalmiles > 0.0) {
-                currentdirection = "north";
-            } else if (totalmiles < 0.0) {
-                currentdirection = "south";
-                totalmiles = Math.abs(totalmiles);
+        /** The graph searched for routes, or null if routes are found in
+         *  the network of ROADMAP. */
+        private final DirectedGraph<Integer, Integer> _graph;
+        /** Text of the trip being printed. */
+        private final StringBuilder _text = new StringBuilder();
+        /** Formats onto _TEXT. */
+        private final Formatter _out = new Formatter(_text);
+        /** Weights set by the route search, by location number. */
+        private final double[] _vertexWeights;
+        /** Weighter that stores the weights set by the route search. */
+        private final Weighter<Integer> vweighter = new Weighter<Integer>() {
+            @Override
+            public void setWeight(Integer x, double v) {
+                _vertexWeights[x] = v;
             }
-        } else if (currentdirection.equals("west")
-                || currentdirection.equals("east")) {
-            if (totalmiles > 0.0) {
-                currentdirection = "east";
-            } else if (totalmiles < 0.0) {
-                currentdirection = "west";
-                totalmiles = Math.abs(totalmiles);
+
+            @Override
+            public double weight(Integer x) {
+                return _vertexWeights[x];
             }
-        }
-        System.out.printf("%d. Take %s %s for %.1f miles to %s.%n",
-            counter, currentroad, currentdirection, totalmiles, destination);
-        totalmiles = 0.0;
-        currentroad = "";
-        currentdirection = "";
+
+        };
+        /** Total miles traveled on a single given road. */
+        private double totalmiles = 0.0;
+        /** Current road that is being traveled. */
+        private String currentroad = "";
+        /** Current direction that our road is heading. */
+        private String currentdirection = "";
+        /** Counter of instruction lines. Resets for every new trip. */
+        private int counter = 0;
     }
 
     /** Returns true iff ROAD is along the same direction as CURRENT.
@@ -339,84 +481,69 @@ public final class Main {
         return road + " " + from + " " + to + " " + length;
     }
 
-    /** Weighter implementation that overrides setweight and weight
-     *  to work for locations. Stores the weights as values of a hashmap. */
-    public static final Weighter<String> VWEIGHTER = new Weighter<String>() {
-        private HashMap<String, Double> vertexweights
-            = new HashMap<String, Double>();
-
-        @Override
-        public void setWeight(String x, double v) {
-            vertexweights.put(x, v);
-        }
-
-        @Override
-        public double weight(String x) {
-            return vertexweights.get(x);
-        }
-
-    };
-
     /** Weighting implementation that overrides weight to work for roads.
-     *  The weighter pulls weights from a hashmap edgeweights and returns
-     *  the value when weight is called. */
-    public static final Weighting<String> EWEIGHTER = new Weighting<String>() {
-        @Override
-        public double weight(String x) {
-            return edgeweights.get(x);
-        }
-    };
+     *  The weighter returns the length of the arc whose number it is
+     *  given, read from ARCS once the graph is built. */
+    public static final Weighting<Integer> EWEIGHTER
+        = new Weighting<Integer>() {
+                @Override
+                public double weight(Integer x) {
+                    return arcs == null ? roadmap.length(x) : arcs.weight(x);
+                }
+            };
 
     /** Distancer implementation that overrides dist and uses the
-     *  distance formula between two sets of coordinates as the heuristic
-     *  value. */
-    public static final Distancer<String> TRIPDISTANCE
-        = new Distancer<String>() {
+     *  distance formula between the coordinates of two numbered locations
+     *  as the heuristic value. */
+    public static final Distancer<Integer> TRIPDISTANCE
+        = new Distancer<Integer>() {
+                @Override
+                public double dist(Integer v0, Integer v1) {
+                    return STRAIGHT.estimate(v0, v1);
+                }
+            };
+
+    /** The straight-line distance between two numbered locations. */
+    private static final IntGraph.Heuristic STRAIGHT
+        = new IntGraph.Heuristic() {
                 @Override
-                public double dist(String v0, String v1) {
-                    return Math.sqrt(
-                        Math.pow((coordinates.get(v0))[0]
-                            - (coordinates.get(v1))[0], 2.0)
-                        + Math.pow((coordinates.get(v0))[1]
-                            - (coordinates.get(v1))[1], 2.0));
+                public double estimate(int v0, int v1) {
+                    double dx = roadmap.x(v0) - roadmap.x(v1),
+                        dy = roadmap.y(v0) - roadmap.y(v1);
+                    return Math.sqrt(dx * dx + dy * dy);
                 }
             };
 
     /** Print a brief usage message and exit program abnormally. */
     private static void usage() {
-        System.out.println("java trip.Main [ -m MAP ] [ -o OUT ] [ REQUESTS ]");
+        System.out.println("java trip.Main [ -m MAP ] [ -o OUT ] [ -c | -l ]"
+            + " [ -p ] [ REQUESTS ]");
         System.exit(1);
     }
 
-    /** Total miles traveled on a single given road. */
-    private static double totalmiles = 0.0;
-    /** Current road that is being traveled. */
-    private static String currentroad = "";
-    /** Current direction that our road is heading. */
-    private static String currentdirection = "";
-    /** Counter of instruction lines. Resets for every new trip. */
-    private static int counter = 0;
+    /** True iff routes are found with a contraction hierarchy. */
+    private static boolean contract = false;
+    /** Contraction hierarchy over the map, if CONTRACT. */
+    private static ContractionHierarchy<Integer, Integer> hierarchy;
+    /** True iff routes are searched with landmark distance estimates. */
+    private static boolean landmarks = false;
+    /** Number of landmarks used when LANDMARKS. */
+    private static final int LANDMARKS = 16;
+    /** Estimates the remaining distance while searching for a route. */
+    private static Distancer<Integer> distancer = TRIPDISTANCE;
+    /** True iff several requests are routed at once. */
+    private static boolean parallel = false;
+    /** Number of requests whose trips are held in memory at once when
+     *  PARALLEL. */
+    private static final int CHUNK = 8192;
+    /** Number of requests a single parallel task routes by itself. */
+    private static final int BATCH = 16;
     /** Arraylist that contains single lines of request. */
     private static ArrayList<String> requests = new ArrayList<String>();
-    /** HashMap with road (edge) as keys and one of the four directions
-     *  {'NS', 'SN', 'WE', 'EW'} as the value. */
-    private static HashMap<Graph<String, String>.Edge, String> edgetodirection
-        = new HashMap<Graph<String, String>.Edge, String>();
-    /** HashMap with the name of a road as the key and the road
-     *  length as the value (weight). */
-    private static HashMap<String, Double> edgeweights
-        = new HashMap<String, Double>();
-    /** HashMap of coordinates where a VLabel is the key and the value
-     *  is an array of length two with. */
-    private static HashMap<String, Double[]> coordinates
-        = new HashMap<String, Double[]>();
-    /** HashMap with location names as keys and the vertex with that
-     *  name in the graph as values. */
-    private static HashMap<String, Graph<String, String>.Vertex> vertexoflabel
-        = new HashMap<String, Graph<String, String>.Vertex>();
-    /** HashMap with road names as keys and the edge with that
-     *  name in the graph as values. */
-    private static HashMap<String, Graph<String, String>.Edge> edgeoflabel
-        = new HashMap<String, Graph<String, String>.Edge>();
+    /** The map. */
+    private static RoadMap roadmap;
+    /** The length, direction, and road of each arc, held in columns for
+     *  searches of the graph built with -c or -l. */
+    private static EdgeColumns arcs;
 
 }
@@ -0,0 +1,79 @@
+package trip;
+
+import graph.VertexOrder;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/** Converts a map from text form to the binary form trip.Main loads
+ *  faster.
+ *  @author Brian Truong.
+ */
+public final class MapCompiler {
+
+    /** Entry point for the map compiler.  ARGS must be
+     *      [ -r ORDER ] MAP BINARY
+     *  where MAP contains map data in text (or binary) form and BINARY
+     *  is the file to receive it in binary form, which may then be given
+     *  to trip.Main as its map.  With -r, locations are renumbered so
+     *  that nearby locations have nearby numbers, which makes routing
+     *  over large maps touch less memory.  ORDER is one of
+     *      hilbert  along a Hilbert curve through the locations'
+     *               coordinates;
+     *      bfs      in breadth-first order along the roads;
+     *      rcm      in reverse Cuthill-McKee order along the roads.
+     */
+    public static void main(String... args) {
+        String order = null;
+        int a = 0;
+        if (args.length == 4 && args[0].equals("-r")) {
+            order = args[1];
+            a = 2;
+        }
+        if (args.length - a != 2
+            || (order != null && !order.equals("hilbert")
+                && !order.equals("bfs") && !order.equals("rcm"))) {
+            System.out.println("java trip.MapCompiler [ -r ORDER ] MAP BINARY");
+            System.exit(1);
+        }
+        RoadMap map = null;
+        try {
+            map = RoadMap.read(args[a]);
+        } catch (FileNotFoundException e) {
+            System.err.printf("Could not open %s.%n", args[a]);
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        if (order != null) {
+            map = map.renumber(renumbering(map, order));
+        }
+        try {
+            map.write(args[a + 1]);
+        } catch (IOException e) {
+            System.err.printf("Could not write %s.%n", args[a + 1]);
+            System.exit(1);
+        }
+    }
+
+    /** Returns the renumbering of the locations of MAP that ORDER, one of
+     *  "hilbert", "bfs", and "rcm", names. */
+    private static int[] renumbering(RoadMap map, String order) {
+        if (order.equals("hilbert")) {
+            double[] xs = new double[map.size()], ys = new double[map.size()];
+            for (int v = 0; v < map.size(); v += 1) {
+                xs[v] = map.x(v);
+                ys[v] = map.y(v);
+            }
+            return VertexOrder.hilbert(xs, ys);
+        } else if (order.equals("bfs")) {
+            return VertexOrder.breadthFirst(map.network());
+        } else {
+            return VertexOrder.reverseCuthillMcKee(map.network());
+        }
+    }
+}
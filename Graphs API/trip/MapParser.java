@@ -0,0 +1,559 @@
+package trip;
+
+import graph.IntGraph;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** A reader for maps in text form that works on several parts of a map
+ *  at once.  The file is mapped into memory and split at line boundaries
+ *  into chunks, which pass through three parallel stages:
+ *    1. Each chunk finds the fields of its lines and converts their
+ *       numbers in place.  Only location names become Strings; a road
+ *       line allocates nothing.
+ *    2. Once locations are numbered in file order, each chunk looks up
+ *       the ends of its roads, by their bytes, and interns its road
+ *       names and direction codes.
+ *    3. Each chunk stores its arcs in the map's arrays, at positions
+ *       found by counting the roads of earlier chunks, and the network
+ *       is then built from the arrays in one step.
+ *  As in a sequential reading, a road refers to the latest location of
+ *  each name listed before it, and is ignored if there is none.
+ *  @author Brian Truong.
+ */
+class MapParser {
+
+    /** Returns the map in the text file named FILENAME.  Throws
+     *  IllegalArgumentException for a malformed line. */
+    static RoadMap parse(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            return new MapParser(file.getChannel()).build();
+        } finally {
+            file.close();
+        }
+    }
+
+    /** A parser for the map in CHANNEL. */
+    private MapParser(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+        for (long start = 0, end; start < size; start = end) {
+            end = lineEnd(channel, Math.min(size, start + CHUNK_BYTES),
+                          size, probe);
+            chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY,
+                                             start, end - start)));
+        }
+        _chunks = chunks.toArray(new Chunk[chunks.size()]);
+    }
+
+    /** Returns the map formed from my chunks. */
+    private RoadMap build() {
+        run(SCAN);
+        int n = 0;
+        for (Chunk chunk : _chunks) {
+            chunk._firstId = n;
+            n += chunk._locationCount;
+        }
+        String[] names = new String[n];
+        double[] xs = new double[n], ys = new double[n];
+        _locationChunk = new int[n];
+        _locationStart = new int[n];
+        _locationLength = new int[n];
+        _locationHash = new int[n];
+        _slots = new int[Integer.highestOneBit(Math.max(1, 2 * n)) << 1];
+        for (int c = 0; c < _chunks.length; c += 1) {
+            Chunk chunk = _chunks[c];
+            for (int i = 0; i < chunk._locationCount; i += 1) {
+                int v = chunk._firstId + i;
+                names[v] = chunk._names[i];
+                xs[v] = chunk._coordinates[2 * i];
+                ys[v] = chunk._coordinates[2 * i + 1];
+                _locationChunk[v] = c;
+                _locationStart[v] = chunk._locations[LOCATION_INTS * i];
+                _locationLength[v] = chunk._locations[LOCATION_INTS * i + 1];
+                _locationHash[v] = chunk._locations[LOCATION_INTS * i + 2];
+                int slot = _locationHash[v] & (_slots.length - 1);
+                while (_slots[slot] != 0) {
+                    slot = (slot + 1) & (_slots.length - 1);
+                }
+                _slots[slot] = v + 1;
+            }
+        }
+        run(RESOLVE);
+        Interner roads = new Interner(), codes = new Interner();
+        int m = 0;
+        for (Chunk chunk : _chunks) {
+            chunk._firstArc = m;
+            m += 2 * chunk._arcCount;
+            chunk._globalRoads = roads.merge(chunk._roadNames);
+            chunk._globalCodes = codes.merge(chunk._codes);
+        }
+        _tails = new int[m];
+        _heads = new int[m];
+        _arcRoads = new int[m];
+        _arcCodes = new int[m];
+        _lengths = new double[m];
+        run(EMIT);
+        return new RoadMap(names, xs, ys, roads.items(), codes.items(),
+                           _arcRoads, _arcCodes,
+                           new IntGraph(n, _tails, _heads, _lengths));
+    }
+
+    /** Performs stage STAGE on all my chunks, in parallel.  A malformed
+     *  line found by another thread is reported again from this one, since
+     *  the pool otherwise alters the exception's message. */
+    private void run(int stage) {
+        try {
+            ForkJoinPool.commonPool().invoke(new Stage(stage, 0,
+                                                       _chunks.length));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(LINE_ERROR);
+        }
+    }
+
+    /** A task that performs one stage on a range of my chunks. */
+    private class Stage extends RecursiveAction {
+
+        /** A task performing stage STAGE on chunks LO <= k < HI. */
+        Stage(int stage, int lo, int hi) {
+            _stage = stage;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo == 1) {
+                _chunks[_lo].perform(_stage);
+            } else if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new Stage(_stage, _lo, mid),
+                          new Stage(_stage, mid, _hi));
+            }
+        }
+
+        /** The stage I perform. */
+        private final int _stage;
+        /** The range of chunks I handle. */
+        private final int _lo, _hi;
+    }
+
+    /** A part of the map consisting of whole lines. */
+    private class Chunk {
+
+        /** A chunk whose text is BYTES. */
+        Chunk(ByteBuffer bytes) {
+            _bytes = bytes;
+            _size = bytes.limit();
+        }
+
+        /** Performs stage STAGE on me. */
+        void perform(int stage) {
+            switch (stage) {
+            case SCAN:
+                scan();
+                break;
+            case RESOLVE:
+                resolve();
+                break;
+            default:
+                emit();
+                break;
+            }
+        }
+
+        /** Records the locations and roads on my lines. */
+        private void scan() {
+            int[] starts = new int[FIELDS], ends = new int[FIELDS];
+            int p = 0;
+            while (p < _size) {
+                int count = 0;
+                while (p < _size && !isEnd(_bytes.get(p))) {
+                    if (isSpace(_bytes.get(p))) {
+                        p += 1;
+                        continue;
+                    }
+                    int start = p;
+                    while (p < _size && !isSpace(_bytes.get(p))
+                           && !isEnd(_bytes.get(p))) {
+                        p += 1;
+                    }
+                    if (count < FIELDS) {
+                        starts[count] = start;
+                        ends[count] = p;
+                        count += 1;
+                    }
+                }
+                p += 1;
+                if (count > 0) {
+                    record(count, starts, ends);
+                }
+            }
+            _names = Arrays.copyOf(_names, _locationCount);
+        }
+
+        /** Records the line whose COUNT fields occupy STARTS[k] ..
+         *  ENDS[k]-1. */
+        private void record(int count, int[] starts, int[] ends) {
+            if (isWord(starts[0], ends[0], 'L')) {
+                check(count >= 4);
+                double x = number(starts[2], ends[2]);
+                double y = number(starts[3], ends[3]);
+                int i = _locationCount;
+                if (i == _names.length) {
+                    _names = Arrays.copyOf(_names, 2 * i);
+                    _locations = Arrays.copyOf(_locations,
+                                               2 * _locations.length);
+                    _coordinates = Arrays.copyOf(_coordinates,
+                                                 2 * _coordinates.length);
+                }
+                _names[i] = string(starts[1], ends[1]);
+                _locations[LOCATION_INTS * i] = starts[1];
+                _locations[LOCATION_INTS * i + 1] = ends[1] - starts[1];
+                _locations[LOCATION_INTS * i + 2] = hash(starts[1], ends[1]);
+                _coordinates[2 * i] = x;
+                _coordinates[2 * i + 1] = y;
+                _locationCount += 1;
+            } else if (isWord(starts[0], ends[0], 'R')) {
+                check(count >= 6);
+                double length = number(starts[3], ends[3]);
+                int i = _roadCount;
+                if (i == _roadLengths.length) {
+                    _roadLengths = Arrays.copyOf(_roadLengths, 2 * i);
+                    _roads = Arrays.copyOf(_roads, 2 * _roads.length);
+                }
+                int k = ROAD_INTS * i;
+                for (int f = 1; f <= 5; f += 1) {
+                    _roads[k + 2 * (f - 1)] = starts[f];
+                    _roads[k + 2 * (f - 1) + 1] = ends[f];
+                }
+                _roads[k + ROAD_INTS - 1] = _locationCount;
+                _roadLengths[i] = length;
+                _roadCount += 1;
+            }
+        }
+
+        /** Finds the ends of my roads, dropping those with an unknown
+         *  end, and interns their names and direction codes. */
+        private void resolve() {
+            Interner roads = new Interner(), codes = new Interner();
+            _arcEnds = new int[2 * _roadCount];
+            _arcNames = new int[2 * _roadCount];
+            for (int i = 0; i < _roadCount; i += 1) {
+                int k = ROAD_INTS * i;
+                int limit = _firstId + _roads[k + ROAD_INTS - 1];
+                int from = find(_roads[k], _roads[k + 1], limit);
+                int to = find(_roads[k + 8], _roads[k + 9], limit);
+                if (from < 0 || to < 0) {
+                    continue;
+                }
+                int j = _arcCount;
+                _arcEnds[2 * j] = from;
+                _arcEnds[2 * j + 1] = to;
+                _arcNames[2 * j] = roads.intern(string(_roads[k + 2],
+                                                       _roads[k + 3]));
+                _arcNames[2 * j + 1] = codes.intern(string(_roads[k + 6],
+                                                           _roads[k + 7]));
+                _roadLengths[j] = _roadLengths[i];
+                _arcCount += 1;
+            }
+            _roadNames = roads.items();
+            _codes = codes.items();
+        }
+
+        /** Stores my arcs in the map's arrays. */
+        private void emit() {
+            for (int j = 0; j < _arcCount; j += 1) {
+                int arc = _firstArc + 2 * j;
+                int from = _arcEnds[2 * j], to = _arcEnds[2 * j + 1];
+                int road = _globalRoads[_arcNames[2 * j]];
+                int code = _globalCodes[_arcNames[2 * j + 1]];
+                _tails[arc] = _heads[arc + 1] = from;
+                _heads[arc] = _tails[arc + 1] = to;
+                _arcRoads[arc] = _arcRoads[arc + 1] = road;
+                _arcCodes[arc] = (code << 1) | 1;
+                _arcCodes[arc + 1] = code << 1;
+                _lengths[arc] = _lengths[arc + 1] = _roadLengths[j];
+            }
+        }
+
+        /** Returns the number of the latest location named by my bytes
+         *  START .. END-1 among those numbered below LIMIT, or -1 if there
+         *  is none. */
+        private int find(int start, int end, int limit) {
+            int h = hash(start, end), best = -1;
+            for (int slot = h & (_slots.length - 1); _slots[slot] != 0;
+                 slot = (slot + 1) & (_slots.length - 1)) {
+                int v = _slots[slot] - 1;
+                if (v < limit && v > best && _locationHash[v] == h
+                    && matches(start, end, v)) {
+                    best = v;
+                }
+            }
+            return best;
+        }
+
+        /** Returns true iff my bytes START .. END-1 are the name of
+         *  location V. */
+        private boolean matches(int start, int end, int v) {
+            if (end - start != _locationLength[v]) {
+                return false;
+            }
+            ByteBuffer other = _chunks[_locationChunk[v]]._bytes;
+            for (int i = 0, j = _locationStart[v]; start + i < end; i += 1) {
+                if (_bytes.get(start + i) != other.get(j + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Returns true iff my bytes START .. END-1 are the single
+         *  character C. */
+        private boolean isWord(int start, int end, char c) {
+            return end - start == 1 && _bytes.get(start) == c;
+        }
+
+        /** Returns a hash of my bytes START .. END-1. */
+        private int hash(int start, int end) {
+            int h = 0;
+            for (int p = start; p < end; p += 1) {
+                h = 31 * h + _bytes.get(p);
+            }
+            return h * HASH_MULTIPLIER;
+        }
+
+        /** Returns my bytes START .. END-1 as a String, decoded as a
+         *  FileReader would. */
+        private String string(int start, int end) {
+            byte[] text = new byte[end - start];
+            for (int i = 0; i < text.length; i += 1) {
+                text[i] = _bytes.get(start + i);
+            }
+            return new String(text, Charset.defaultCharset());
+        }
+
+        /** Returns the value of the numeral in my bytes START .. END-1.
+         *  Numerals of at most 15 digits with a small exponent are
+         *  converted directly, exactly as Double.parseDouble would; others
+         *  are given to it. */
+        private double number(int start, int end) {
+            int p = start;
+            boolean negative = false;
+            if (p < end && (_bytes.get(p) == '-' || _bytes.get(p) == '+')) {
+                negative = _bytes.get(p) == '-';
+                p += 1;
+            }
+            long mantissa = 0;
+            int digits = 0, exponent = 0;
+            boolean point = false;
+            for (; p < end; p += 1) {
+                byte b = _bytes.get(p);
+                if (b == '.' && !point) {
+                    point = true;
+                } else if (b >= '0' && b <= '9') {
+                    mantissa = 10 * mantissa + (b - '0');
+                    digits += 1;
+                    if (point) {
+                        exponent -= 1;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (p < end && (_bytes.get(p) == 'e' || _bytes.get(p) == 'E')
+                && digits > 0) {
+                p += 1;
+                boolean negativeExponent = false;
+                if (p < end
+                    && (_bytes.get(p) == '-' || _bytes.get(p) == '+')) {
+                    negativeExponent = _bytes.get(p) == '-';
+                    p += 1;
+                }
+                int power = 0, powerDigits = 0;
+                for (; p < end && powerDigits < 4; p += 1, powerDigits += 1) {
+                    byte b = _bytes.get(p);
+                    if (b < '0' || b > '9') {
+                        break;
+                    }
+                    power = 10 * power + (b - '0');
+                }
+                exponent += negativeExponent ? -power : power;
+                if (powerDigits == 0) {
+                    p = -1;
+                }
+            }
+            if (p != end || digits == 0 || digits > MAX_DIGITS
+                || Math.abs(exponent) >= POWERS.length) {
+                try {
+                    return Double.parseDouble(string(start, end));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(LINE_ERROR);
+                }
+            }
+            double result = exponent >= 0 ? mantissa * POWERS[exponent]
+                : mantissa / POWERS[-exponent];
+            return negative ? -result : result;
+        }
+
+        /** My text. */
+        private final ByteBuffer _bytes;
+        /** Number of bytes in my text. */
+        private final int _size;
+
+        /** Number of locations I list. */
+        private int _locationCount;
+        /** Names of the locations I list. */
+        private String[] _names = new String[16];
+        /** For each of my locations, the position, length, and hash of
+         *  its name in my text. */
+        private int[] _locations = new int[16 * LOCATION_INTS];
+        /** The x and y coordinates of each of my locations. */
+        private double[] _coordinates = new double[32];
+        /** Number of the first of my locations. */
+        private int _firstId;
+
+        /** Number of roads I list. */
+        private int _roadCount;
+        /** For each of my roads, the start and end in my text of its
+         *  fields FROM, ROAD, LENGTH, DIRECTION, and TO, followed by the
+         *  number of locations I list before it. */
+        private int[] _roads = new int[16 * ROAD_INTS];
+        /** The length of each road, and later of each road kept. */
+        private double[] _roadLengths = new double[16];
+
+        /** Number of my roads whose ends are known. */
+        private int _arcCount;
+        /** The start and end locations of each road kept. */
+        private int[] _arcEnds;
+        /** The local road name and direction code number of each road
+         *  kept. */
+        private int[] _arcNames;
+        /** The distinct road names and direction codes of the roads
+         *  kept. */
+        private String[] _roadNames, _codes;
+        /** The map's numbers for my road names and direction codes. */
+        private int[] _globalRoads, _globalCodes;
+        /** Number of the first of my arcs. */
+        private int _firstArc;
+    }
+
+    /** Assigns consecutive numbers to distinct strings. */
+    private static class Interner {
+        /** Returns the number of S, assigning the next one if S is
+         *  new. */
+        int intern(String s) {
+            Integer result = _numbers.get(s);
+            if (result == null) {
+                result = _items.size();
+                _numbers.put(s, result);
+                _items.add(s);
+            }
+            return result;
+        }
+
+        /** Interns each of STRINGS and returns their numbers. */
+        int[] merge(String[] strings) {
+            int[] result = new int[strings.length];
+            for (int i = 0; i < strings.length; i += 1) {
+                result[i] = intern(strings[i]);
+            }
+            return result;
+        }
+
+        /** Returns the strings numbered so far, in order. */
+        String[] items() {
+            return _items.toArray(new String[_items.size()]);
+        }
+
+        /** The number of each string. */
+        private final HashMap<String, Integer> _numbers
+            = new HashMap<String, Integer>();
+        /** The strings, by number. */
+        private final ArrayList<String> _items = new ArrayList<String>();
+    }
+
+    /** Returns the position just after the first line terminator at or
+     *  after POS in CHANNEL, whose size is SIZE, or SIZE if there is none,
+     *  reading through PROBE. */
+    private static long lineEnd(FileChannel channel, long pos, long size,
+                                ByteBuffer probe) throws IOException {
+        while (pos < size) {
+            probe.clear();
+            int count = channel.read(probe, pos);
+            for (int i = 0; i < count; i += 1) {
+                if (isEnd(probe.get(i))) {
+                    return pos + i + 1;
+                }
+            }
+            pos += Math.max(count, 1);
+        }
+        return size;
+    }
+
+    /** Returns true iff B ends a line. */
+    private static boolean isEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /** Returns true iff B separates the fields of a line. */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\u000b' || b == '\f';
+    }
+
+    /** Throws an IllegalArgumentException unless COND. */
+    private static void check(boolean cond) {
+        if (!cond) {
+            throw new IllegalArgumentException(LINE_ERROR);
+        }
+    }
+
+    /** Stages of parsing. */
+    private static final int SCAN = 0, RESOLVE = 1, EMIT = 2;
+    /** Nominal number of bytes in a chunk. */
+    private static final int CHUNK_BYTES = 1 << 22;
+    /** Number of bytes read at a time while finding a line end. */
+    private static final int PROBE_BYTES = 256;
+    /** Number of fields of a line that are examined. */
+    private static final int FIELDS = 6;
+    /** Ints recorded for each location. */
+    private static final int LOCATION_INTS = 3;
+    /** Ints recorded for each road. */
+    private static final int ROAD_INTS = 11;
+    /** Spreads hash values across the bits of an int. */
+    private static final int HASH_MULTIPLIER = 0x9e3779b9;
+    /** Most digits in a numeral converted directly.  Larger mantissas
+     *  might not be exact doubles. */
+    private static final int MAX_DIGITS = 15;
+    /** Powers of ten that are exactly representable as doubles. */
+    private static final double[] POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /** Message for a malformed line. */
+    private static final String LINE_ERROR = "Error in input line.";
+
+    /** My chunks, in order. */
+    private final Chunk[] _chunks;
+    /** The chunk, position, length, and hash of the name of each
+     *  location, by number. */
+    private int[] _locationChunk, _locationStart, _locationLength,
+        _locationHash;
+    /** Open-addressed table of location numbers plus one, by name hash;
+     *  0 marks an empty slot. */
+    private int[] _slots;
+    /** The map's arrays, by arc number. */
+    private int[] _tails, _heads, _arcRoads, _arcCodes;
+    /** The length of each arc. */
+    private double[] _lengths;
+}
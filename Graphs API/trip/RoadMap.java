@@ -0,0 +1,314 @@
+package trip;
+
+import graph.IntGraph;
+import graph.VertexOrder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/** The locations and roads of a map, held in arrays.  Locations are
+ *  numbered from 0 in the order the map lists them, unless renumbered
+ *  with renumber, and each road is two arcs, one in each direction,
+ *  numbered so that arc 2k is road k in the direction the map gives and
+ *  arc 2k+1 is its reverse.  Road names and direction codes are
+ *  interned.
+ *
+ *  A map may be read from the text form, whose lines are
+ *      L NAME X Y
+ *      R FROM ROAD LENGTH DIRECTION TO
+ *  (see MapParser) or from a binary form written by write.  The binary
+ *  form holds the coordinates, the name and direction of each arc, the
+ *  location and road names, and the roads themselves as a saved
+ *  IntGraph, which is mapped into memory rather than read.
+ *  @author Brian Truong.
+ */
+class RoadMap {
+
+    /** Returns the map in the file named FILENAME, which may be in either
+     *  text or binary form.  Throws IllegalArgumentException for a
+     *  malformed line of a text map. */
+    static RoadMap read(String fileName) throws IOException {
+        DataInputStream in =
+            new DataInputStream(new FileInputStream(fileName));
+        int magic;
+        try {
+            magic = in.available() >= 4 ? in.readInt() : 0;
+        } finally {
+            in.close();
+        }
+        if (magic == MAGIC) {
+            return load(fileName);
+        } else {
+            return MapParser.parse(fileName);
+        }
+    }
+
+    /** Returns the number of locations. */
+    int size() {
+        return _names.length;
+    }
+
+    /** Returns the number of the location named NAME, or -1 if there is
+     *  none.  When several locations share a name, it denotes the last
+     *  of them. */
+    int id(String name) {
+        Integer result = _ids.get(name);
+        return result == null ? -1 : result;
+    }
+
+    /** Returns the name of location V. */
+    String name(int v) {
+        return _names[v];
+    }
+
+    /** Returns the x coordinate of location V. */
+    double x(int v) {
+        return _xs[v];
+    }
+
+    /** Returns the y coordinate of location V. */
+    double y(int v) {
+        return _ys[v];
+    }
+
+    /** Returns my roads as a graph whose vertices are location numbers
+     *  and whose edges are arc numbers, weighted by length. */
+    IntGraph network() {
+        return _network;
+    }
+
+    /** Returns the name of the road of which ARC is part. */
+    String road(int arc) {
+        return _roadNames[_arcRoads[arc]];
+    }
+
+    /** Returns the number of the road of which ARC is part.  Roads
+     *  with the same name have the same number. */
+    int roadNumber(int arc) {
+        return _arcRoads[arc];
+    }
+
+    /** Returns the direction code the map gives for the road of which ARC
+     *  is part. */
+    String direction(int arc) {
+        return _codes[_arcCodes[arc] >> 1];
+    }
+
+    /** Returns true iff ARC runs the way direction(ARC) describes, rather
+     *  than the reverse. */
+    boolean forward(int arc) {
+        return (_arcCodes[arc] & 1) != 0;
+    }
+
+    /** Returns the length of ARC. */
+    double length(int arc) {
+        return _network.weight(arc);
+    }
+
+    /** Returns a copy of me in which location v is numbered IDS[v], a
+     *  permutation of 0 .. size()-1 such as graph.VertexOrder computes.
+     *  Arcs keep their numbers.  Where several locations share a name,
+     *  their numbers are exchanged as needed so that the name still
+     *  denotes the same one of them.  Throws IllegalArgumentException if
+     *  IDS is not a permutation. */
+    RoadMap renumber(int[] ids) {
+        int n = size();
+        if (ids.length != n) {
+            throw new IllegalArgumentException("not a renumbering");
+        }
+        ids = ids.clone();
+        int[] old = VertexOrder.inverse(ids);
+        HashMap<String, Integer> last = new HashMap<String, Integer>();
+        for (int v = 0; v < n; v += 1) {
+            Integer u = last.get(_names[v]);
+            if (u != null && ids[u] > ids[v]) {
+                int t = ids[u];
+                ids[u] = ids[v];
+                ids[v] = t;
+                old[ids[u]] = u;
+                old[ids[v]] = v;
+            }
+            last.put(_names[v], v);
+        }
+        String[] names = new String[n];
+        double[] xs = new double[n], ys = new double[n];
+        for (int v = 0; v < n; v += 1) {
+            names[v] = _names[old[v]];
+            xs[v] = _xs[old[v]];
+            ys[v] = _ys[old[v]];
+        }
+        return new RoadMap(names, xs, ys, _roadNames, _codes, _arcRoads,
+                           _arcCodes, _network.renumber(ids));
+    }
+
+    /** Writes me in binary form to the file named FILENAME. */
+    void write(String fileName) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        DataOutputStream strings = new DataOutputStream(text);
+        for (String[] table : new String[][] { _names, _roadNames, _codes }) {
+            for (String s : table) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                strings.writeInt(bytes.length);
+                strings.write(bytes);
+            }
+        }
+        while (text.size() % 8 != 0) {
+            text.write(0);
+        }
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(fileName)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(_names.length);
+            out.writeInt(_arcRoads.length);
+            out.writeInt(_roadNames.length);
+            out.writeInt(_codes.length);
+            out.writeInt(0);
+            out.writeLong(text.size());
+            for (double[] column : new double[][] { _xs, _ys }) {
+                for (double x : column) {
+                    out.writeDouble(x);
+                }
+            }
+            for (int[] column : new int[][] { _arcRoads, _arcCodes }) {
+                for (int k : column) {
+                    out.writeInt(k);
+                }
+            }
+            text.writeTo(out);
+            _network.write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /** A map of the locations NAMES at coordinates XS and YS, where arc
+     *  k is part of road ARCROADS[k] of ROADNAMES and has direction code
+     *  ARCCODES[k] >> 1 of CODES, reversed if ARCCODES[k] is even.
+     *  NETWORK holds the arcs. */
+    RoadMap(String[] names, double[] xs, double[] ys,
+            String[] roadNames, String[] codes, int[] arcRoads,
+            int[] arcCodes, IntGraph network) {
+        _names = names;
+        _xs = xs;
+        _ys = ys;
+        _roadNames = roadNames;
+        _codes = codes;
+        _arcRoads = arcRoads;
+        _arcCodes = arcCodes;
+        _network = network;
+        _ids = new HashMap<String, Integer>();
+        for (int v = 0; v < names.length; v += 1) {
+            _ids.put(names[v], v);
+        }
+    }
+
+    /** Returns the map in the binary file named FILENAME. */
+    private static RoadMap load(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            file.readInt();
+            int n = file.readInt(), m = file.readInt(),
+                roadCount = file.readInt(), codeCount = file.readInt();
+            file.readInt();
+            long textSize = file.readLong();
+            if (n < 0 || m < 0 || roadCount < 0 || codeCount < 0
+                || textSize < 0) {
+                throw new IOException(fileName + " is not a map");
+            }
+            long pos = HEADER;
+            double[] xs = new double[n], ys = new double[n];
+            pos = readDoubles(channel, pos, xs);
+            pos = readDoubles(channel, pos, ys);
+            int[] arcRoads = new int[m], arcCodes = new int[m];
+            pos = readInts(channel, pos, arcRoads);
+            pos = readInts(channel, pos, arcCodes);
+            DataInputStream strings =
+                new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(pos))));
+            String[] names = readStrings(strings, n);
+            String[] roadNames = readStrings(strings, roadCount);
+            String[] codes = readStrings(strings, codeCount);
+            IntGraph network = IntGraph.map(channel, pos + textSize);
+            if (network.vertexSize() != n || network.edgeSize() != m) {
+                throw new IOException(fileName + " is not a map");
+            }
+            return new RoadMap(names, xs, ys, roadNames, codes, arcRoads,
+                               arcCodes, network);
+        } finally {
+            file.close();
+        }
+    }
+
+    /** Fills ITEMS from CHANNEL, starting at byte POSITION, and returns
+     *  the position just after them. */
+    private static long readInts(FileChannel channel, long position,
+                                 int[] items) throws IOException {
+        for (int k = 0; k < items.length; k += PIECE) {
+            int length = Math.min(PIECE, items.length - k);
+            channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * k,
+                        4L * length).asIntBuffer().get(items, k, length);
+        }
+        return position + 4L * items.length;
+    }
+
+    /** Fills ITEMS from CHANNEL, starting at byte POSITION, and returns
+     *  the position just after them. */
+    private static long readDoubles(FileChannel channel, long position,
+                                    double[] items) throws IOException {
+        for (int k = 0; k < items.length; k += PIECE) {
+            int length = Math.min(PIECE, items.length - k);
+            channel.map(FileChannel.MapMode.READ_ONLY, position + 8L * k,
+                        8L * length).asDoubleBuffer().get(items, k, length);
+        }
+        return position + 8L * items.length;
+    }
+
+    /** Returns the next COUNT strings written by write on IN. */
+    private static String[] readStrings(DataInputStream in, int count)
+        throws IOException {
+        String[] result = new String[count];
+        for (int i = 0; i < count; i += 1) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            result[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    /** Identifies a binary map. */
+    private static final int MAGIC = 0x0054524d;
+    /** Number of bytes before the coordinates in a binary map. */
+    private static final long HEADER = 32;
+    /** Most items read from one mapping. */
+    private static final int PIECE = 1 << 24;
+
+    /** Location names, by number. */
+    private final String[] _names;
+    /** The number of the location with each name. */
+    private final HashMap<String, Integer> _ids;
+    /** Location coordinates, by number. */
+    private final double[] _xs, _ys;
+    /** Distinct road names and direction codes. */
+    private final String[] _roadNames, _codes;
+    /** Index in _ROADNAMES of the road of each arc. */
+    private final int[] _arcRoads;
+    /** Index in _CODES of the direction code of each arc, times 2, plus 1
+     *  iff the arc runs the way its code describes. */
+    private final int[] _arcCodes;
+    /** The arcs, as a graph. */
+    private final IntGraph _network;
+}
@@ -8,6 +8,9 @@ package trip;
 import ucb.junit.textui;
 import static org.junit.Assert.*;
 import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 
 /** Unit tests for the trip package. */
 public class Testing {
@@ -67,4 +70,112 @@ public class Testing {
         String currentdirection = "north";
         assertEquals(Main.alongPath(road, currentdirection), true);
     }
+
+    @Test
+    public void testRoadMapBinary() throws IOException {
+        File text = File.createTempFile("map", ".txt");
+        File binary = File.createTempFile("map", ".bin");
+        try {
+            PrintWriter out = new PrintWriter(text);
+            out.println("L A 0 0");
+            out.println("L B 3 4");
+            out.println("L C 3 0");
+            out.println("R A I5 5.0 SN B");
+            out.println("R C I5 3.0 EW A");
+            out.println("R A I5 9.0 WE Nowhere");
+            out.close();
+            RoadMap map = RoadMap.read(text.getPath());
+            map.write(binary.getPath());
+            for (RoadMap m : new RoadMap[] {
+                    map, RoadMap.read(binary.getPath()) }) {
+                assertEquals(3, m.size());
+                assertEquals(1, m.id("B"));
+                assertEquals(-1, m.id("Nowhere"));
+                assertEquals("C", m.name(2));
+                assertEquals(4.0, m.y(1), 0.0);
+                assertEquals(4, m.network().edgeSize());
+                assertEquals(2, m.network().tail(2));
+                assertEquals(0, m.network().tail(3));
+                assertEquals("I5", m.road(3));
+                assertEquals("EW", m.direction(3));
+                assertTrue(m.forward(2));
+                assertFalse(m.forward(3));
+                assertEquals(3.0, m.length(3), 0.0);
+            }
+        } finally {
+            text.delete();
+            binary.delete();
+        }
+    }
+
+    @Test
+    public void testMapParser() throws IOException {
+        File text = File.createTempFile("map", ".txt");
+        try {
+            PrintWriter out = new PrintWriter(text);
+            out.print("R A I5 1 NS B\n");
+            out.print("  L\tA 1e1 -.5\r\n");
+            out.print("L B 2 3\rR A I5 7 NS B\n\n");
+            out.print("# A note\n");
+            out.print("L A 0x1p2 1.5\n");
+            out.print("R B Hwy1 2 EW A");
+            out.close();
+            RoadMap map = RoadMap.read(text.getPath());
+            assertEquals(3, map.size());
+            assertEquals(2, map.id("A"));
+            assertEquals(10.0, map.x(0), 0.0);
+            assertEquals(-0.5, map.y(0), 0.0);
+            assertEquals(4.0, map.x(2), 0.0);
+            assertEquals(4, map.network().edgeSize());
+            assertEquals(0, map.network().tail(0));
+            assertEquals(7.0, map.length(0), 0.0);
+            assertEquals(2, map.network().head(2));
+            assertEquals("Hwy1", map.road(3));
+            out = new PrintWriter(text);
+            out.print("L A 1 2\nL B 1 x\n");
+            out.close();
+            try {
+                RoadMap.read(text.getPath());
+                fail("malformed line accepted");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Error in input line.", e.getMessage());
+            }
+        } finally {
+            text.delete();
+        }
+    }
+
+    @Test
+    public void testRenumber() throws IOException {
+        File text = File.createTempFile("map", ".txt");
+        File binary = File.createTempFile("map", ".bin");
+        try {
+            PrintWriter out = new PrintWriter(text);
+            out.println("L A 0 0");
+            out.println("L B 3 4");
+            out.println("L A 5 5");
+            out.println("L C 1 1");
+            out.println("R A I5 2.0 NS B");
+            out.println("R C I80 1.0 EW A");
+            out.close();
+            RoadMap map = RoadMap.read(text.getPath());
+            map.renumber(new int[] { 3, 2, 1, 0 }).write(binary.getPath());
+            RoadMap m = RoadMap.read(binary.getPath());
+            assertEquals(4, m.size());
+            assertEquals(3, m.id("A"));
+            assertEquals(5.0, m.x(m.id("A")), 0.0);
+            assertEquals(0.0, m.x(1), 0.0);
+            assertEquals(2, m.id("B"));
+            assertEquals(0, m.id("C"));
+            assertEquals(4, m.network().edgeSize());
+            assertEquals(3, m.network().tail(0));
+            assertEquals(2, m.network().head(0));
+            assertEquals(0, m.network().tail(2));
+            assertEquals("I80", m.road(2));
+            assertEquals(1.0, m.length(3), 0.0);
+        } finally {
+            text.delete();
+            binary.delete();
+        }
+    }
 }